@@ -8,7 +8,7 @@ import {
     Notifications, ConfirmationNumber, Warning, CheckCircle, Security, AccessTime, Info
 } from '@mui/icons-material';
 import { useNavigate } from 'react-router-dom';
-import { useNotifications } from '../context/NotificationContext';
+import { useNotifications, notificationKey } from '../context/NotificationContext';
 
 const NotificationBell = () => {
     const [anchorEl, setAnchorEl] = useState(null);
@@ -19,7 +19,7 @@ const NotificationBell = () => {
     const handleClose = () => setAnchorEl(null);
 
     const handleItemClick = (n) => {
-        markAsRead(n.id);
+        markAsRead(n);
         // Optional: Close menu on click
         // handleClose();
     };
@@ -84,7 +84,7 @@ const NotificationBell = () => {
                         </Box>
                     ) : (
                         notifications.slice(0, 5).map((n) => (
-                            <React.Fragment key={n.id}>
+                            <React.Fragment key={notificationKey(n)}>
                                 <ListItem disablePadding>
                                     {/* ✅ FIXED: Use ListItemButton instead of ListItem button */}
                                     <ListItemButton 
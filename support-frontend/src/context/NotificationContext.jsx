@@ -1,53 +1,176 @@
-import React, { createContext, useState, useEffect, useContext, useCallback } from 'react';
+import React, { createContext, useState, useEffect, useContext, useCallback, useRef } from 'react';
 import { toast } from 'react-toastify';
+import SockJS from 'sockjs-client';
+import Stomp from 'stompjs';
 import api from '../services/api';
 
 const NotificationContext = createContext();
 
 export const useNotifications = () => useContext(NotificationContext);
 
+// Personal notifications and role broadcasts have separate id sequences
+export const notificationKey = (n) => `${n.broadcast ? 'b' : 'n'}-${n.id}`;
+
+const PAGE_SIZE = 20;
+
 export const NotificationProvider = ({ children }) => {
     const [notifications, setNotifications] = useState([]);
     const [unreadCount, setUnreadCount] = useState(0);
+    const [nextCursor, setNextCursor] = useState(null);
+    // Highest personal notification seq seen; sent on reconnect to replay only what was missed
+    const lastSeq = useRef(null);
+    const socketConnected = useRef(false);
 
-    // --- 1. Fetch Notifications from Backend ---
+    // --- 1. Fetch Notifications from Backend (first page; older pages via loadMore) ---
     const fetchNotifications = useCallback(async () => {
         const userId = localStorage.getItem('userId');
         
         if (!userId) return;
 
         try {
-            const response = await api.get(`/notifications/${userId}`);
-            setNotifications(response.data);
+            const response = await api.get(`/notifications/user/${userId}/inbox`, { params: { limit: PAGE_SIZE } });
+            setNotifications(response.data.items);
+            setNextCursor(response.data.nextCursor);
+            if (lastSeq.current === null || response.data.lastSeq > lastSeq.current) {
+                lastSeq.current = response.data.lastSeq;
+            }
+        } catch (error) {
+            // Error handled silently for production
+        }
+    }, []);
+
+    const loadMore = useCallback(async () => {
+        const userId = localStorage.getItem('userId');
+        if (!userId || !nextCursor) return;
+
+        try {
+            const response = await api.get(`/notifications/user/${userId}/inbox`, {
+                params: { cursor: nextCursor, limit: PAGE_SIZE }
+            });
+            setNotifications(prev => [...prev, ...response.data.items]);
+            setNextCursor(response.data.nextCursor);
+        } catch (error) {
+            // Error handled silently for production
+        }
+    }, [nextCursor]);
+
+    const fetchUnreadCount = useCallback(async () => {
+        const userId = localStorage.getItem('userId');
+        if (!userId) return;
+
+        try {
+            const response = await api.get(`/notifications/user/${userId}/unread-count`);
+            setUnreadCount(response.data.unread);
         } catch (error) {
             // Error handled silently for production
         }
     }, []);
 
-    // --- 2. Initial Load & Auto-Polling ---
+    // --- 2. Initial Load & Auto-Polling (only the count; the list reloads when it changes) ---
     useEffect(() => {
         fetchNotifications(); 
+        fetchUnreadCount();
 
         const interval = setInterval(() => {
-            fetchNotifications();
+            fetchUnreadCount();
         }, 5000);
 
         return () => clearInterval(interval); 
-    }, [fetchNotifications]);
+    }, [fetchNotifications, fetchUnreadCount]);
+
+    // Without a socket, a rising count is the only sign of new items
+    const lastCount = useRef(null);
+    useEffect(() => {
+        if (lastCount.current !== null && unreadCount > lastCount.current && !socketConnected.current) fetchNotifications();
+        lastCount.current = unreadCount;
+    }, [unreadCount, fetchNotifications]);
+
+    // Adds pushed / replayed personal items to the top of the list (skips ones already shown)
+    const mergeItems = useCallback((items) => {
+        if (items.length === 0) return;
+        setNotifications(prev => {
+            const known = new Set(prev.map(notificationKey));
+            const fresh = items.filter(n => !known.has(notificationKey(n)));
+            return [...fresh.reverse(), ...prev];
+        });
+        const newest = Math.max(...items.map(n => n.seq || 0));
+        if (lastSeq.current === null || newest > lastSeq.current) lastSeq.current = newest;
+    }, []);
 
-    // --- 3. Update Unread Count Automatically ---
+    // --- 2b. Live updates: personal items (replayed after a reconnect), unread count, admin broadcasts ---
     useEffect(() => {
-        const count = notifications.filter(n => !n.read && !n.isRead).length;
-        setUnreadCount(count);
-    }, [notifications]);
+        if (!localStorage.getItem('userId')) return;
+
+        let stompClient = null;
+        let retryTimer = null;
+        let attempts = 0;
+        let closed = false;
+
+        const connect = () => {
+            const socket = new SockJS('http://localhost:8080/ws');
+            stompClient = Stomp.over(socket);
+            stompClient.debug = null;
+
+            stompClient.connect({ Authorization: `Bearer ${localStorage.getItem('token')}` }, () => {
+                attempts = 0;
+                socketConnected.current = true;
+
+                stompClient.subscribe('/user/queue/notifications', (message) => {
+                    mergeItems([JSON.parse(message.body)]);
+                });
+                stompClient.subscribe('/user/queue/unread', (message) => {
+                    setUnreadCount(JSON.parse(message.body).unread);
+                });
+                if (localStorage.getItem('role') === 'ADMIN') {
+                    stompClient.subscribe('/topic/admins', (message) => {
+                        const notification = JSON.parse(message.body);
+                        toast.info(notification.title);
+                        fetchNotifications();
+                    });
+                }
+
+                // Missed while disconnected: answered once with { items, lastSeq, resync }
+                if (lastSeq.current !== null) {
+                    const replay = stompClient.subscribe(`/app/notifications/replay/${lastSeq.current}`, (message) => {
+                        const result = JSON.parse(message.body);
+                        if (result.resync) fetchNotifications();
+                        else mergeItems(result.items);
+                        replay.unsubscribe();
+                    });
+                }
+                fetchUnreadCount();
+            }, () => {
+                socketConnected.current = false;
+                if (closed) return;
+                // Exponential backoff with jitter so clients don't all come back at the same moment
+                const delay = Math.min(30000, 1000 * 2 ** attempts) * (0.5 + Math.random());
+                attempts++;
+                retryTimer = setTimeout(connect, delay);
+            });
+        };
+        connect();
+
+        return () => {
+            closed = true;
+            socketConnected.current = false;
+            clearTimeout(retryTimer);
+            if (stompClient && stompClient.connected) stompClient.disconnect();
+        };
+    }, [fetchNotifications, fetchUnreadCount, mergeItems]);
 
     // --- 4. Actions ---
 
-    const markAsRead = async (id) => {
-        setNotifications(prev => prev.map(n => n.id === id ? { ...n, read: true, isRead: true } : n));
+    const markAsRead = async (item) => {
+        const key = notificationKey(item);
+        setNotifications(prev => prev.map(n => notificationKey(n) === key ? { ...n, read: true, isRead: true } : n));
+        if (!item.read) setUnreadCount(c => Math.max(0, c - 1));
         
         try {
-            await api.put(`/notifications/${id}/read`);
+            if (item.broadcast) {
+                await api.put(`/notifications/user/${localStorage.getItem('userId')}/broadcasts/${item.id}/read`);
+            } else {
+                await api.put(`/notifications/${item.id}/read`);
+            }
         } catch (error) {
             // Silently fail or re-fetch if necessary
         }
@@ -68,11 +191,18 @@ export const NotificationProvider = ({ children }) => {
         }
     };
 
-    const deleteNotification = async (id) => {
-        setNotifications(prev => prev.filter(n => n.id !== id));
+    const deleteNotification = async (item) => {
+        const key = notificationKey(item);
+        setNotifications(prev => prev.filter(n => notificationKey(n) !== key));
+        if (!item.read) setUnreadCount(c => Math.max(0, c - 1));
 
         try {
-            await api.delete(`/notifications/${id}`);
+            if (item.broadcast) {
+                // Broadcasts are shared: only hide it for this user
+                await api.delete(`/notifications/user/${localStorage.getItem('userId')}/broadcasts/${item.id}`);
+            } else {
+                await api.delete(`/notifications/${item.id}`);
+            }
             toast.success("Notification removed");
         } catch (error) {
             fetchNotifications(); 
@@ -93,6 +223,8 @@ export const NotificationProvider = ({ children }) => {
         <NotificationContext.Provider value={{ 
             notifications, 
             unreadCount, 
+            hasMore: nextCursor !== null,
+            loadMore, 
             markAsRead, 
             markAllAsRead, 
             deleteNotification, 
@@ -93,7 +93,7 @@ const BranchDashboard = () => {
         const stompClient = Stomp.over(socket);
         stompClient.debug = null; 
 
-        stompClient.connect({}, () => {
+        stompClient.connect({ Authorization: `Bearer ${localStorage.getItem('token')}` }, () => {
             stompClient.subscribe('/user/queue/notifications', (message) => {
                 const notification = JSON.parse(message.body);
                 toast.info(
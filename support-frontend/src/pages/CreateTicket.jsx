@@ -2,7 +2,7 @@ import React, { useState, useEffect, useRef } from 'react';
 import { 
     Container, Paper, Typography, TextField, Button, MenuItem, 
     Box, FormControl, InputLabel, Select, Fade, CircularProgress,
-    Stack, Avatar, InputAdornment, FormHelperText, Card, CardContent, Chip, Divider, Tooltip
+    Stack, Avatar, InputAdornment, Card, CardContent, Chip, Divider, Tooltip, Autocomplete
 } from '@mui/material';
 import { 
     Send, CloudUpload, SupportAgent, NoteAdd, Computer, Devices, 
@@ -24,6 +24,8 @@ const CreateTicket = () => {
     const [selectedTypeName, setSelectedTypeName] = useState('');       
     
     const [branchAssets, setBranchAssets] = useState([]); 
+    const [assetQuery, setAssetQuery] = useState('');
+    const [assetsLoading, setAssetsLoading] = useState(false);
     const [selectedAssetId, setSelectedAssetId] = useState(''); 
     const [selectedAssetDetails, setSelectedAssetDetails] = useState(null); 
 
@@ -45,10 +47,6 @@ const CreateTicket = () => {
                 const catResponse = await api.get('/master-data/categories');
                 setCategories(catResponse.data);
 
-                if (branchId) {
-                    const assetResponse = await api.get(`/assets/branch/${branchId}`);
-                    setBranchAssets(assetResponse.data);
-                }
             } catch (error) {
                 console.error("Error loading data", error);
             }
@@ -56,6 +54,25 @@ const CreateTicket = () => {
         loadData();
     }, [branchId]);
 
+    // ✅ Asset picker: server-side prefix search (code / serial), one small page per keystroke pause
+    useEffect(() => {
+        if (!branchId) return;
+        const timer = setTimeout(async () => {
+            setAssetsLoading(true);
+            try {
+                const response = await api.get('/assets/search', {
+                    params: { branchId, q: assetQuery || undefined, size: 20, sort: 'assetCode' }
+                });
+                setBranchAssets(response.data.content);
+            } catch (error) {
+                console.error("Error searching assets", error);
+            } finally {
+                setAssetsLoading(false);
+            }
+        }, 250);
+        return () => clearTimeout(timer);
+    }, [branchId, assetQuery]);
+
     const handleCategoryChange = async (categoryId) => {
         setSelectedCategory(categoryId);
         setSelectedType(''); 
@@ -75,14 +92,9 @@ const CreateTicket = () => {
         setSelectedTypeName(type ? type.typeName : '');
     };
 
-    const handleAssetChange = (assetId) => {
-        setSelectedAssetId(assetId);
-        if (assetId) {
-            const asset = branchAssets.find(a => a.assetId === assetId);
-            setSelectedAssetDetails(asset);
-        } else {
-            setSelectedAssetDetails(null);
-        }
+    const handleAssetChange = (asset) => {
+        setSelectedAssetId(asset ? asset.assetId : '');
+        setSelectedAssetDetails(asset);
     };
 
     // ✅ UPDATED: AI Logic now uses Asset Details
@@ -253,23 +265,36 @@ const CreateTicket = () => {
                                 <Typography variant="subtitle2" fontWeight="bold" color="textSecondary" sx={{ mb: 2, textTransform: 'uppercase', letterSpacing: 1 }}>
                                     2. Affected Hardware
                                 </Typography>
-                                <FormControl fullWidth>
-                                    <InputLabel id="asset-label">Select Device (Optional)</InputLabel>
-                                    <Select 
-                                        labelId="asset-label"
-                                        value={selectedAssetId} label="Select Device (Optional)" 
-                                        onChange={(e) => handleAssetChange(e.target.value)}
-                                        startAdornment={<InputAdornment position="start"><Computer fontSize="small" color="action" /></InputAdornment>}
-                                    >
-                                        <MenuItem value=""><em>General Issue / Software Only</em></MenuItem>
-                                        {branchAssets.map((asset) => (
-                                            <MenuItem key={asset.assetId} value={asset.assetId}>
-                                                {asset.assetCode} — {asset.brand} {asset.model}
-                                            </MenuItem>
-                                        ))}
-                                    </Select>
-                                    <FormHelperText>If this issue relates to a specific device, please select it here.</FormHelperText>
-                                </FormControl>
+                                <Autocomplete
+                                    fullWidth
+                                    options={branchAssets}
+                                    value={selectedAssetDetails}
+                                    loading={assetsLoading}
+                                    filterOptions={(options) => options}
+                                    isOptionEqualToValue={(option, value) => option.assetId === value.assetId}
+                                    getOptionLabel={(asset) => `${asset.assetCode} — ${asset.brand} ${asset.model}`}
+                                    onChange={(e, asset) => handleAssetChange(asset)}
+                                    onInputChange={(e, value, reason) => { if (reason === 'input') setAssetQuery(value); else if (reason === 'clear') setAssetQuery(''); }}
+                                    noOptionsText="No matching device (leave empty for a general / software issue)"
+                                    renderInput={(params) => (
+                                        <TextField
+                                            {...params}
+                                            label="Select Device (Optional)"
+                                            placeholder="Type an asset code or serial number"
+                                            helperText="If this issue relates to a specific device, please select it here."
+                                            InputProps={{
+                                                ...params.InputProps,
+                                                startAdornment: <InputAdornment position="start"><Computer fontSize="small" color="action" /></InputAdornment>,
+                                                endAdornment: (
+                                                    <>
+                                                        {assetsLoading && <CircularProgress color="inherit" size={18} />}
+                                                        {params.InputProps.endAdornment}
+                                                    </>
+                                                )
+                                            }}
+                                        />
+                                    )}
+                                />
 
                                 {selectedAssetDetails && (
                                     <Fade in={true}>
@@ -7,7 +7,7 @@ import {
     Notifications, Warning, CheckCircle, Security, Delete, DoneAll, 
     Info, AccessTime 
 } from '@mui/icons-material';
-import { useNotifications } from '../context/NotificationContext';
+import { useNotifications, notificationKey } from '../context/NotificationContext';
 
 const NotificationsPage = () => {
     const { 
@@ -15,7 +15,9 @@ const NotificationsPage = () => {
         markAsRead, 
         markAllAsRead, 
         deleteNotification, 
-        fetchNotifications 
+        fetchNotifications,
+        hasMore,
+        loadMore
     } = useNotifications();
 
     useEffect(() => {
@@ -98,12 +100,12 @@ const NotificationsPage = () => {
                     ) : (
                         <List sx={{ p: 0 }}>
                             {notifications.map((n, index) => (
-                                <React.Fragment key={n.id}>
+                                <React.Fragment key={notificationKey(n)}>
                                     <ListItem 
                                         alignItems="flex-start"
                                         secondaryAction={
                                             <Tooltip title="Delete">
-                                                <IconButton edge="end" aria-label="delete" onClick={() => deleteNotification(n.id)}>
+                                                <IconButton edge="end" aria-label="delete" onClick={() => deleteNotification(n)}>
                                                     <Delete fontSize="small" color="action" />
                                                 </IconButton>
                                             </Tooltip>
@@ -122,7 +124,7 @@ const NotificationsPage = () => {
                                         </ListItemAvatar>
                                         
                                         <ListItemText
-                                            onClick={() => markAsRead(n.id)}
+                                            onClick={() => markAsRead(n)}
                                             sx={{ cursor: 'pointer', pr: 4 }}
                                             primary={
                                                 <Box display="flex" alignItems="center" gap={1} mb={0.5}>
@@ -157,6 +159,11 @@ const NotificationsPage = () => {
                             ))}
                         </List>
                     )}
+                    {hasMore && (
+                        <Box sx={{ p: 2, textAlign: 'center' }}>
+                            <Button onClick={loadMore} sx={{ fontWeight: 'bold', color: '#64748b' }}>Load more</Button>
+                        </Box>
+                    )}
                 </Paper>
             </Container>
         </Fade>
@@ -0,0 +1,243 @@
+package com.ntmi.support.cache;
+
+import com.ntmi.support.dto.DashboardStats;
+import com.ntmi.support.event.BranchDataChangedEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, size-aware TTL cache for analytics and dashboard results.
+ * <p>
+ * - Each entry has its own TTL and a "weight" (roughly the number of rows it holds).
+ * - When the total weight exceeds the limit, least-recently-used entries are evicted.
+ * - Entries are tagged with a branch; a {@link BranchDataChangedEvent} drops that branch's
+ *   entries plus all global (all-branch) entries.
+ * - Misses go through {@link SingleFlight}, so a burst of identical requests loads once.
+ */
+@Component
+public class AnalyticsCache {
+
+    private static final String ALL = "ALL";
+
+    @Autowired
+    private SingleFlight singleFlight;
+
+    @Value("${analytics.cache.max-weight:20000}")
+    private long maxWeight;
+
+    // Access-ordered map = LRU iteration order. Guarded by "this".
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalWeight = 0;
+
+    // Bumped on invalidation so a load that started before a write is not stored afterwards
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final AtomicLong globalGeneration = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Autowired
+    public void registerMetrics(MeterRegistry registry) {
+        FunctionCounter.builder("analytics.cache.hits", hits, AtomicLong::get).register(registry);
+        FunctionCounter.builder("analytics.cache.misses", misses, AtomicLong::get).register(registry);
+        FunctionCounter.builder("analytics.cache.evictions", evictions, AtomicLong::get)
+                .description("Entries removed to stay under the weight limit").register(registry);
+        FunctionCounter.builder("analytics.cache.expirations", expirations, AtomicLong::get).register(registry);
+        FunctionCounter.builder("analytics.cache.invalidations", invalidations, AtomicLong::get)
+                .description("Entries dropped because branch data changed").register(registry);
+        Gauge.builder("analytics.cache.size", this, AnalyticsCache::size).register(registry);
+        Gauge.builder("analytics.cache.weight", this, AnalyticsCache::weight).register(registry);
+    }
+
+    /**
+     * Returns the cached value for the key, or loads it (once, even under concurrency) and caches it.
+     *
+     * @param branchId branch the result belongs to, or null for all-branch results
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Long branchId, Duration ttl, Supplier<T> loader) {
+        long now = System.nanoTime();
+        synchronized (this) {
+            Entry e = entries.get(key);
+            if (e != null) {
+                if (e.expiresAt - now > 0) {
+                    hits.incrementAndGet();
+                    return (T) e.value;
+                }
+                removeEntry(key, e);
+                expirations.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+
+        String tag = tag(branchId);
+
+        // The leader reads the generation inside the flight, so a caller that joins a load
+        // started before an invalidation sees the old generation and does not store it
+        Loaded<T> loaded = singleFlight.execute(key, () -> {
+            long generation = generationOf(tag);
+            return new Loaded<>(loader.get(), generation);
+        });
+        T value = loaded.value;
+
+        synchronized (this) {
+            // Skip storing if the branch changed while we were computing
+            if (loaded.generation == generationOf(tag)) {
+                Entry old = entries.remove(key);
+                if (old != null) totalWeight -= old.weight;
+
+                Entry fresh = new Entry(value, tag, weigh(value), System.nanoTime() + ttl.toNanos());
+                entries.put(key, fresh);
+                totalWeight += fresh.weight;
+                evictIfNeeded();
+            }
+        }
+        return value;
+    }
+
+    // --- Event-driven invalidation ---
+
+    // Runs after the writing transaction commits (or immediately when there is none)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBranchDataChanged(BranchDataChangedEvent event) {
+        invalidateBranch(event.getBranchId());
+    }
+
+    public synchronized void invalidateBranch(Long branchId) {
+        String tag = tag(branchId);
+        globalGeneration.incrementAndGet();
+        if (branchId != null) {
+            generations.computeIfAbsent(tag, k -> new AtomicLong()).incrementAndGet();
+        } else {
+            generations.values().forEach(AtomicLong::incrementAndGet);
+        }
+
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry e = it.next().getValue();
+            // Global entries aggregate every branch, so they are always affected.
+            // An unknown branch (null) affects everything.
+            if (branchId == null || ALL.equals(e.tag) || tag.equals(e.tag)) {
+                it.remove();
+                totalWeight -= e.weight;
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        invalidations.addAndGet(entries.size());
+        entries.clear();
+        totalWeight = 0;
+        globalGeneration.incrementAndGet();
+        generations.values().forEach(AtomicLong::incrementAndGet);
+    }
+
+    // --- Stats ---
+
+    public synchronized int size() { return entries.size(); }
+
+    public synchronized long weight() { return totalWeight; }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", size());
+        stats.put("weight", weight());
+        stats.put("maxWeight", maxWeight);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("expirations", expirations.get());
+        stats.put("invalidations", invalidations.get());
+        return stats;
+    }
+
+    // --- Internals ---
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        // Keep at least the newest entry even if it alone exceeds the limit
+        while (totalWeight > maxWeight && entries.size() > 1 && it.hasNext()) {
+            Entry e = it.next().getValue();
+            it.remove();
+            totalWeight -= e.weight;
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void removeEntry(String key, Entry e) {
+        entries.remove(key);
+        totalWeight -= e.weight;
+    }
+
+    private long generationOf(String tag) {
+        if (ALL.equals(tag)) return globalGeneration.get();
+        return generations.computeIfAbsent(tag, k -> new AtomicLong()).get();
+    }
+
+    private String tag(Long branchId) {
+        return branchId == null ? ALL : String.valueOf(branchId);
+    }
+
+    // Rough size estimate: one unit per row / chart point
+    private long weigh(Object value) {
+        if (value instanceof Collection<?> c) return 1 + c.size();
+        if (value instanceof Map<?, ?> m) {
+            long w = 1;
+            for (Object v : m.values()) {
+                w += (v instanceof Collection<?> c) ? c.size() : 1;
+            }
+            return w;
+        }
+        if (value instanceof DashboardStats s) {
+            return 1 + sizeOf(s.getCategoryStats()) + sizeOf(s.getErrorStats()) + sizeOf(s.getWeeklyStats());
+        }
+        return 1;
+    }
+
+    private int sizeOf(Collection<?> c) {
+        return c == null ? 0 : c.size();
+    }
+
+    private static class Loaded<T> {
+        final T value;
+        final long generation;
+
+        Loaded(T value, long generation) {
+            this.value = value;
+            this.generation = generation;
+        }
+    }
+
+    private static class Entry {
+        final Object value;
+        final String tag;
+        final long weight;
+        final long expiresAt;
+
+        Entry(Object value, String tag, long weight, long expiresAt) {
+            this.value = value;
+            this.tag = tag;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
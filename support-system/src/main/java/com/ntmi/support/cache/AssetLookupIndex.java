@@ -0,0 +1,172 @@
+package com.ntmi.support.cache;
+
+import com.ntmi.support.dto.AssetSummary;
+import com.ntmi.support.model.Asset;
+import com.ntmi.support.repository.AssetRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index for label scans: asset code / serial number -> {@link AssetSummary}.
+ * <p>
+ * Loaded at startup with a single projection query, then kept current by the code paths
+ * that write assets. Hits are plain ConcurrentHashMap lookups. Writes made on another node
+ * are not seen here, so a miss falls back to one indexed query (and caches the result), and
+ * the whole index is reloaded every reload-interval to pick up other changes.
+ * Keys are upper-cased to match the case-insensitive SQL Server collation.
+ * Asset codes are unique; serial numbers are not enforced, so a duplicated serial resolves
+ * to the most recently written asset (codes are always checked first).
+ */
+@Component
+public class AssetLookupIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(AssetLookupIndex.class);
+
+    @Autowired
+    private AssetRepository assetRepository;
+
+    private final Map<String, AssetSummary> byCode = new ConcurrentHashMap<>();
+    private final Map<String, AssetSummary> bySerial = new ConcurrentHashMap<>();
+    // Previous version of each asset, so renamed codes/serials can be unlinked
+    private final Map<Long, AssetSummary> byId = new ConcurrentHashMap<>();
+
+    @Autowired
+    public void registerMetrics(MeterRegistry registry) {
+        Gauge.builder("assets.lookup.size", byId, Map::size)
+                .description("Assets held in the scan lookup index").register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reload();
+    }
+
+    @Scheduled(fixedDelayString = "${assets.lookup.reload-interval:PT10M}",
+               initialDelayString = "${assets.lookup.reload-interval:PT10M}")
+    public void scheduledReload() {
+        reload();
+    }
+
+    // Full rebuild (startup, bulk changes)
+    public synchronized void reload() {
+        List<AssetSummary> all = assetRepository.findAllSummaries();
+        byCode.clear();
+        bySerial.clear();
+        byId.clear();
+        all.forEach(this::link);
+        logger.info("Asset lookup index loaded: {} assets", all.size());
+    }
+
+    // --- Lookups ---
+
+    // Asset code first, then serial number
+    public AssetSummary lookup(String codeOrSerial) {
+        String key = normalize(codeOrSerial);
+        if (key == null) return null;
+        AssetSummary summary = byCode.get(key);
+        if (summary == null) summary = bySerial.get(key);
+        return summary != null ? summary : loadMissing(key, codeOrSerial.trim());
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    // --- Updates (call after the asset row is saved; applied once the transaction commits) ---
+
+    public void put(Asset asset) {
+        if (asset == null || asset.getAssetId() == null) return;
+        AssetSummary summary = toSummary(asset); // read now, while lazy associations can still load
+        afterCommit(() -> {
+            synchronized (this) {
+                unlink(byId.get(summary.getAssetId()));
+                link(summary);
+            }
+        });
+    }
+
+    public void remove(Long assetId) {
+        if (assetId == null) return;
+        afterCommit(() -> {
+            synchronized (this) {
+                unlink(byId.get(assetId));
+            }
+        });
+    }
+
+    // --- Internals ---
+
+    // A rolled-back write (e.g. a duplicate code at commit) must not reach the index
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // Code match first, then the most recently created asset with that serial
+    private AssetSummary loadMissing(String key, String value) {
+        AssetSummary found = assetRepository.findSummariesByCodeOrSerial(value).stream()
+                .max(Comparator.comparing((AssetSummary s) -> key.equals(normalize(s.getAssetCode())))
+                        .thenComparing(AssetSummary::getAssetId))
+                .orElse(null);
+        if (found != null) {
+            synchronized (this) {
+                unlink(byId.get(found.getAssetId()));
+                link(found);
+            }
+        }
+        return found;
+    }
+
+    private void link(AssetSummary s) {
+        byId.put(s.getAssetId(), s);
+        String code = normalize(s.getAssetCode());
+        if (code != null) byCode.put(code, s);
+        String serial = normalize(s.getSerialNumber());
+        if (serial != null) bySerial.put(serial, s);
+    }
+
+    private void unlink(AssetSummary s) {
+        if (s == null) return;
+        byId.remove(s.getAssetId());
+        // Only drop keys that still point at this asset
+        String code = normalize(s.getAssetCode());
+        if (code != null) byCode.computeIfPresent(code, (k, v) -> v.getAssetId().equals(s.getAssetId()) ? null : v);
+        String serial = normalize(s.getSerialNumber());
+        if (serial != null) bySerial.computeIfPresent(serial, (k, v) -> v.getAssetId().equals(s.getAssetId()) ? null : v);
+    }
+
+    private AssetSummary toSummary(Asset a) {
+        Long branchId = a.getBranch() != null ? a.getBranch().getBranchId() : null;
+        String branchName = a.getBranch() != null ? a.getBranch().getBranchName() : null;
+        return new AssetSummary(a.getAssetId(), a.getAssetCode(), a.getSerialNumber(), branchId, branchName,
+                a.getStatus(), a.getBrand(), a.getModel(), a.getDeviceType());
+    }
+
+    private static String normalize(String value) {
+        if (value == null || value.isBlank()) return null;
+        return value.trim().toUpperCase(Locale.ROOT);
+    }
+}
@@ -2,18 +2,25 @@ package com.ntmi.support.config;
 
 import io.jsonwebtoken.*; // Imported for Jwts, Claims, JwtException
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
 
 @Component
 public class JwtUtils {
 
-    // Generate a secure key for signing
-    // Note: Since this is random, every time you restart the server, old tokens will stop working.
-    // In a real production app, you would read this key from application.properties.
-    private final SecretKey key = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+    // Signing key: app.jwt.secret (at least 32 bytes) when set, so every node accepts the same tokens.
+    // Without it the key is random: tokens stop working on restart and only work on this node.
+    private final SecretKey key;
+
+    public JwtUtils(@Value("${app.jwt.secret:}") String secret) {
+        this.key = secret.isBlank()
+                ? Keys.secretKeyFor(SignatureAlgorithm.HS256)
+                : Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    }
     
     // Token validity (e.g., 24 hours)
     private final int jwtExpirationMs = 86400000;
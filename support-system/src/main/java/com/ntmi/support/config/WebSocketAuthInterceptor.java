@@ -0,0 +1,110 @@
+package com.ntmi.support.config;
+
+import com.ntmi.support.model.Role;
+import com.ntmi.support.service.NotificationWriter;
+import com.ntmi.support.service.UserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * STOMP authentication: the CONNECT frame carries the same "Authorization: Bearer ..." header
+ * as REST calls. The session user is what convertAndSendToUser() and /user/queue/...
+ * subscriptions resolve against, so without it personal pushes reach nobody.
+ * <p>
+ * Connections without a token stay anonymous (topic-free dashboards); an invalid token is
+ * rejected. Subscriptions are checked because brokers match destination patterns:
+ * <ul>
+ *   <li>no wildcards (*, ? or a brace) - /topic/* would match every role topic</li>
+ *   <li>no direct /queue/... - personal queues are reached through /user/queue/... only</li>
+ *   <li>role topics (/topic/admins, ...) only for authenticated users of that role</li>
+ *   <li>the relay's node-to-node topics not at all (they carry other users' messages)</li>
+ * </ul>
+ * Clients may only SEND to /app destinations, so nobody can publish on a role topic.
+ */
+@Component
+public class WebSocketAuthInterceptor implements ChannelInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketAuthInterceptor.class);
+
+    private static final Map<String, Role> ROLE_TOPICS = new HashMap<>();
+    static {
+        for (Role role : Role.values()) ROLE_TOPICS.put(NotificationWriter.topicFor(role), role);
+    }
+
+    private static final Set<String> SYSTEM_TOPICS =
+            Set.of(WebSocketConfig.USER_DESTINATION_BROADCAST, WebSocketConfig.USER_REGISTRY_BROADCAST);
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private UserService userService;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) return message;
+
+        // 1. CONNECT: bind the user to the session
+        if (accessor.getCommand() == StompCommand.CONNECT) {
+            String header = accessor.getFirstNativeHeader("Authorization");
+            if (header != null && header.startsWith("Bearer ")) {
+                String jwt = header.substring(7);
+                if (!jwtUtils.validateJwtToken(jwt)) {
+                    throw new MessageDeliveryException("Invalid token");
+                }
+                UserDetails user = userService.loadUserByUsername(jwtUtils.getUserNameFromJwtToken(jwt));
+                accessor.setUser(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+            }
+        }
+
+        // 2. SUBSCRIBE: see the class comment
+        if (accessor.getCommand() == StompCommand.SUBSCRIBE) {
+            String destination = accessor.getDestination();
+            if (!maySubscribe(destination, accessor.getUser())) reject("subscribe to", destination, accessor.getUser());
+        }
+
+        // 3. SEND: application handlers only, never straight to the broker
+        if (accessor.getCommand() == StompCommand.SEND) {
+            String destination = accessor.getDestination();
+            if (destination == null || !destination.startsWith("/app/")) reject("send to", destination, accessor.getUser());
+        }
+        return message;
+    }
+
+    private boolean maySubscribe(String destination, Principal user) {
+        if (destination == null) return false;
+        if (destination.indexOf('*') >= 0 || destination.indexOf('?') >= 0 || destination.indexOf('{') >= 0) return false;
+        if (destination.startsWith("/queue")) return false;
+        if (SYSTEM_TOPICS.contains(destination)) return false;
+        Role role = ROLE_TOPICS.get(destination);
+        return role == null || hasAuthority(user, role.name());
+    }
+
+    private void reject(String action, String destination, Principal user) {
+        logger.warn("Rejected attempt to {} {} by {}", action, destination, user != null ? user.getName() : "anonymous");
+        throw new MessageDeliveryException("Not allowed to " + action + " " + destination);
+    }
+
+    private boolean hasAuthority(Principal principal, String authority) {
+        return principal instanceof Authentication auth
+                && auth.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals(authority));
+    }
+}
@@ -1,19 +1,128 @@
 package com.ntmi.support.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import java.time.Duration;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    // SIMPLE: in-memory broker, single node only. RELAY: external STOMP broker shared by all nodes.
+    public enum BrokerMode { SIMPLE, RELAY }
+
+    // Nodes exchange unresolved /user destinations and their user registries over these
+    public static final String USER_DESTINATION_BROADCAST = "/topic/unresolved-user-destination";
+    public static final String USER_REGISTRY_BROADCAST = "/topic/user-registry";
+
+    @Autowired
+    private WebSocketAuthInterceptor webSocketAuthInterceptor;
+
+    @Autowired
+    private WebSocketSessionMonitor sessionMonitor;
+
+    // Spring's broker scheduler; lazy because it is created by the same configuration
+    @Autowired
+    @Lazy
+    @Qualifier("messageBrokerTaskScheduler")
+    private TaskScheduler messageBrokerTaskScheduler;
+
+    @Value("${websocket.broker.mode:SIMPLE}")
+    private BrokerMode brokerMode;
+
+    @Value("${websocket.broker.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${websocket.broker.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${websocket.broker.relay.login:guest}")
+    private String relayLogin;
+
+    @Value("${websocket.broker.relay.passcode:guest}")
+    private String relayPasscode;
+
+    @Value("${websocket.broker.relay.virtual-host:}")
+    private String relayVirtualHost;
+
+    // STOMP heartbeats (server -> client, client -> server); 0 disables
+    @Value("${websocket.heartbeat.outgoing:10s}")
+    private Duration heartbeatOutgoing;
+
+    @Value("${websocket.heartbeat.incoming:10s}")
+    private Duration heartbeatIncoming;
+
+    @Value("${websocket.sockjs.heartbeat:25s}")
+    private Duration sockJsHeartbeat;
+
+    // Channel thread pools (client frames in, frames to clients out)
+    @Value("${websocket.channel.inbound.core-pool-size:4}")
+    private int inboundCorePoolSize;
+
+    @Value("${websocket.channel.inbound.max-pool-size:16}")
+    private int inboundMaxPoolSize;
+
+    @Value("${websocket.channel.inbound.queue-capacity:1000}")
+    private int inboundQueueCapacity;
+
+    @Value("${websocket.channel.outbound.core-pool-size:8}")
+    private int outboundCorePoolSize;
+
+    @Value("${websocket.channel.outbound.max-pool-size:32}")
+    private int outboundMaxPoolSize;
+
+    @Value("${websocket.channel.outbound.queue-capacity:10000}")
+    private int outboundQueueCapacity;
+
+    // Per-session limits: a client that cannot take its frames within these is disconnected
+    @Value("${websocket.transport.send-time-limit:5s}")
+    private Duration sendTimeLimit;
+
+    @Value("${websocket.transport.send-buffer-size-limit:256KB}")
+    private DataSize sendBufferSizeLimit;
+
+    @Value("${websocket.transport.message-size-limit:64KB}")
+    private DataSize messageSizeLimit;
+
+    @Value("${websocket.transport.time-to-first-message:30s}")
+    private Duration timeToFirstMessage;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        // 1. Enable simple broker for /topic (public) and /queue (private)
-        config.enableSimpleBroker("/topic", "/queue");
+        // 1. Broker for /topic (public) and /queue (private)
+        if (brokerMode == BrokerMode.RELAY) {
+            // A user connected to another node is found through the broadcasts below
+            StompBrokerRelayRegistration relay = config.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayLogin)
+                    .setClientPasscode(relayPasscode)
+                    .setSystemLogin(relayLogin)
+                    .setSystemPasscode(relayPasscode)
+                    .setUserDestinationBroadcast(USER_DESTINATION_BROADCAST)
+                    .setUserRegistryBroadcast(USER_REGISTRY_BROADCAST)
+                    .setSystemHeartbeatSendInterval(heartbeatOutgoing.toMillis())
+                    .setSystemHeartbeatReceiveInterval(heartbeatIncoming.toMillis());
+            if (!relayVirtualHost.isBlank()) relay.setVirtualHost(relayVirtualHost);
+        } else {
+            // Heartbeats let both sides notice a dead connection (the client then reconnects and replays)
+            config.enableSimpleBroker("/topic", "/queue")
+                    .setHeartbeatValue(new long[] { heartbeatOutgoing.toMillis(), heartbeatIncoming.toMillis() })
+                    .setTaskScheduler(messageBrokerTaskScheduler);
+        }
         
         // 2. Messages sent from the client to the server should start with "/app"
         config.setApplicationDestinationPrefixes("/app");
@@ -24,11 +133,42 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         config.setUserDestinationPrefix("/user"); 
     }
 
+    // JWT on CONNECT (session user for /user/... destinations) + role topic guard
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(webSocketAuthInterceptor);
+        registration.taskExecutor()
+                .corePoolSize(inboundCorePoolSize)
+                .maxPoolSize(inboundMaxPoolSize)
+                .queueCapacity(inboundQueueCapacity);
+    }
+
+    // Broadcast fan-out runs here; a slow client only holds a thread up to the send time limit
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor()
+                .corePoolSize(outboundCorePoolSize)
+                .maxPoolSize(outboundMaxPoolSize)
+                .queueCapacity(outboundQueueCapacity);
+    }
+
+    // Slow consumers: frames to a session are buffered while another thread is writing to it;
+    // past the time or buffer limit the session is closed and the client catches up on reconnect
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit((int) sendTimeLimit.toMillis())
+                .setSendBufferSizeLimit((int) sendBufferSizeLimit.toBytes())
+                .setMessageSizeLimit((int) messageSizeLimit.toBytes())
+                .setTimeToFirstMessage((int) timeToFirstMessage.toMillis())
+                .addDecoratorFactory(sessionMonitor);
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         // This is the URL the Frontend connects to: http://localhost:8080/ws
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("*") // Allow React (localhost:3000) to connect
-                .withSockJS(); // Enable SockJS fallback
+                .withSockJS() // Enable SockJS fallback
+                .setHeartbeatTime(sockJsHeartbeat.toMillis());
     }
 }
\ No newline at end of file
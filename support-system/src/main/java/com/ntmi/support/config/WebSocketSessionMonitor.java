@@ -0,0 +1,105 @@
+package com.ntmi.support.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.config.WebSocketMessageBrokerStats;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * WebSocket session gauges and slow-consumer logging.
+ * <p>
+ * A session whose outbound frames exceed the send time or buffer limit is closed by Spring
+ * with SESSION_NOT_RELIABLE; the client reconnects and replays what it missed from its last
+ * seq. This decorator logs who was dropped so a bad link can be traced to a user.
+ * Executor beans are looked up lazily because they are created by the configuration that
+ * uses this decorator.
+ */
+@Component
+public class WebSocketSessionMonitor implements WebSocketHandlerDecoratorFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketSessionMonitor.class);
+
+    @Autowired
+    private ObjectProvider<WebSocketMessageBrokerStats> brokerStats;
+
+    @Autowired
+    @Qualifier("clientInboundChannelExecutor")
+    private ObjectProvider<ThreadPoolTaskExecutor> inboundExecutor;
+
+    @Autowired
+    @Qualifier("clientOutboundChannelExecutor")
+    private ObjectProvider<ThreadPoolTaskExecutor> outboundExecutor;
+
+    // The STOMP user (bound on CONNECT), not the handshake principal: /ws is permitAll
+    @Autowired
+    private ObjectProvider<SimpUserRegistry> userRegistry;
+
+    @Autowired
+    public void registerMetrics(MeterRegistry registry) {
+        Gauge.builder("websocket.sessions.active", this, m -> m.sessionStat(SubProtocolWebSocketHandler.Stats::getTotalSessions))
+                .description("Open WebSocket/SockJS sessions on this node").register(registry);
+        Gauge.builder("websocket.channel.queued", this, m -> queueSize(m.inboundExecutor))
+                .tag("channel", "inbound").description("Client frames waiting for a channel thread").register(registry);
+        Gauge.builder("websocket.channel.queued", this, m -> queueSize(m.outboundExecutor))
+                .tag("channel", "outbound").description("Frames to clients waiting for a channel thread").register(registry);
+        FunctionCounter.builder("websocket.sessions.dropped", this, m -> m.sessionStat(SubProtocolWebSocketHandler.Stats::getLimitExceededSessions))
+                .tag("reason", "slow_consumer").register(registry);
+        FunctionCounter.builder("websocket.sessions.dropped", this, m -> m.sessionStat(SubProtocolWebSocketHandler.Stats::getNoMessagesReceivedSessions))
+                .tag("reason", "no_connect").register(registry);
+        FunctionCounter.builder("websocket.sessions.dropped", this, m -> m.sessionStat(SubProtocolWebSocketHandler.Stats::getTransportErrorSessions))
+                .tag("reason", "transport_error").register(registry);
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+                // Before super: the registry drops the session on the disconnect event it triggers
+                if (CloseStatus.SESSION_NOT_RELIABLE.equalsCode(status)) {
+                    logger.warn("Slow WebSocket consumer disconnected: session {} user {} ({})",
+                            session.getId(), stompUser(session.getId()), status.getReason());
+                }
+                super.afterConnectionClosed(session, status);
+            }
+        };
+    }
+
+    private String stompUser(String sessionId) {
+        SimpUserRegistry registry = userRegistry.getIfAvailable();
+        if (registry == null) return "-";
+        return registry.getUsers().stream()
+                .filter(u -> u.getSession(sessionId) != null)
+                .map(SimpUser::getName)
+                .findFirst()
+                .orElse("-");
+    }
+
+    private double sessionStat(ToIntFunction<SubProtocolWebSocketHandler.Stats> stat) {
+        WebSocketMessageBrokerStats stats = brokerStats.getIfAvailable();
+        if (stats == null || stats.getWebSocketSessionStats() == null) return 0;
+        return stat.applyAsInt(stats.getWebSocketSessionStats());
+    }
+
+    private static double queueSize(ObjectProvider<ThreadPoolTaskExecutor> executor) {
+        ThreadPoolTaskExecutor e = executor.getIfAvailable();
+        return e == null ? 0 : e.getQueueSize();
+    }
+}
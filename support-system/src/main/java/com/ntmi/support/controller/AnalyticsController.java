@@ -1,10 +1,21 @@
 package com.ntmi.support.controller;
 
+import com.ntmi.support.cache.AnalyticsCache;
+import com.ntmi.support.dto.analytics.MtbfStatsDTO;
 import com.ntmi.support.service.AnalyticsService;
+import com.ntmi.support.service.FailureStatsService;
+import com.ntmi.support.service.MttrSketchService;
+import com.ntmi.support.service.RepairRecordService;
+import com.ntmi.support.service.WarrantyAlertService;
+import com.ntmi.support.service.analytics.BucketGranularity;
+import com.ntmi.support.service.analytics.TimeRange;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -16,28 +27,111 @@ public class AnalyticsController {
     @Autowired
     private AnalyticsService analyticsService;
 
+    @Autowired
+    private AnalyticsCache analyticsCache;
+
+    @Autowired
+    private MttrSketchService mttrSketchService;
+
+    @Autowired
+    private RepairRecordService repairRecordService;
+
+    @Autowired
+    private FailureStatsService failureStatsService;
+
+    @Autowired
+    private WarrantyAlertService warrantyAlertService;
+
     // 1. KPI Cards (Spend, MTTR, MTBF)
     @GetMapping("/kpi")
     public ResponseEntity<Map<String, Object>> getKpis(
             @RequestParam(required = false) Long branch,
-            @RequestParam(defaultValue = "6M") String range) {
-        return ResponseEntity.ok(analyticsService.getKpis(branch, range));
+            @RequestParam(defaultValue = "6M") String range,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(analyticsService.getKpis(branch, TimeRange.resolve(range, from, to)));
+    }
+
+    // 1b. MTTR Percentiles (p50/p90/p99, overall and per category)
+    @GetMapping("/mttr")
+    public ResponseEntity<Map<String, Object>> getMttrPercentiles(
+            @RequestParam(required = false) Long branch,
+            @RequestParam(defaultValue = "6M") String range,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(analyticsService.getMttrPercentiles(branch, TimeRange.resolve(range, from, to)));
+    }
+
+    // 1c. Rebuild MTTR sketches from ticket history (backfill / repair)
+    @PostMapping("/mttr/rebuild")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> rebuildMttrSketches(
+            @RequestParam(defaultValue = "1Y") String range,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        int rows = mttrSketchService.rebuild(TimeRange.resolve(range, from, to));
+        analyticsCache.clear();
+        return ResponseEntity.ok(Map.of("sketchesWritten", rows));
     }
 
     // 2. Reliability (Failure Rates by Model)
     @GetMapping("/reliability")
     public ResponseEntity<List<Map<String, Object>>> getReliability(
             @RequestParam(required = false) Long branch,
-            @RequestParam(defaultValue = "6M") String range) {
-        return ResponseEntity.ok(analyticsService.getReliabilityAnalysis(branch, range));
+            @RequestParam(defaultValue = "6M") String range,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(analyticsService.getReliabilityAnalysis(branch, TimeRange.resolve(range, from, to)));
     }
 
-    // 3. Cost Trends (Monthly Spend)
+    // 2b. MTBF per model (pooled failure intervals, with standard deviation), worst first
+    @GetMapping("/mtbf/models")
+    public ResponseEntity<List<MtbfStatsDTO>> getModelMtbf(@RequestParam(required = false) Long branch) {
+        return ResponseEntity.ok(failureStatsService.getModelMtbf(branch));
+    }
+
+    // 2c. MTBF for one asset
+    @GetMapping("/mtbf/assets/{assetId}")
+    public ResponseEntity<MtbfStatsDTO> getAssetMtbf(@PathVariable Long assetId) {
+        return ResponseEntity.ok(failureStatsService.getAssetMtbf(assetId));
+    }
+
+    // 2d. Rebuild failure interval stats from ticket history (also runs nightly)
+    @PostMapping("/mtbf/rebuild")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> rebuildFailureStats() {
+        int rows = failureStatsService.rebuild();
+        return ResponseEntity.ok(Map.of("assetsWritten", rows));
+    }
+
+    // 3. Cost Trends (Spend per DAY / WEEK / MONTH / QUARTER, default MONTH)
     @GetMapping("/costs")
-    public ResponseEntity<List<Map<String, Object>>> getCostTrends(
+    public ResponseEntity<?> getCostTrends(
             @RequestParam(required = false) Long branch,
-            @RequestParam(defaultValue = "6M") String range) {
-        return ResponseEntity.ok(analyticsService.getCostTrends(branch, range));
+            @RequestParam(defaultValue = "6M") String range,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "MONTH") String granularity) {
+        return ResponseEntity.ok(analyticsService.getCostTrends(
+                branch, TimeRange.resolve(range, from, to), BucketGranularity.parse(granularity)));
+    }
+
+    // 3b. Branch Cost Report (monthly spend per branch)
+    @GetMapping("/branch-costs")
+    public ResponseEntity<List<Map<String, Object>>> getBranchCosts(
+            @RequestParam(defaultValue = "1Y") String range,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(analyticsService.getBranchMonthlyCosts(TimeRange.resolve(range, from, to)));
+    }
+
+    // 3c. Rebuild the monthly cost ledger from repair history
+    @PostMapping("/cost-ledger/rebuild")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> rebuildCostLedger() {
+        int rows = repairRecordService.rebuildLedger();
+        analyticsCache.clear();
+        return ResponseEntity.ok(Map.of("ledgerRows", rows));
     }
 
     // 4. Warranty Risk Watchlist
@@ -47,11 +141,34 @@ public class AnalyticsController {
         return ResponseEntity.ok(analyticsService.getWarrantyRisks(branch));
     }
 
+    // 4b. Refresh the watchlist now and send digests for new crossings (normally hourly)
+    @PostMapping("/warranty-risk/refresh")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> refreshWarrantyWatchlist() {
+        int alerts = warrantyAlertService.refreshAndNotify();
+        return ResponseEntity.ok(Map.of("newAlerts", alerts));
+    }
+
     // 5. Failure Distribution (Pie Chart) - FIXED 404 Error
     @GetMapping("/failure-distribution")
     public ResponseEntity<List<Map<String, Object>>> getFailureDistribution(
             @RequestParam(required = false) Long branch,
-            @RequestParam(defaultValue = "6M") String range) {
-        return ResponseEntity.ok(analyticsService.getFailureDistribution(branch, range));
+            @RequestParam(defaultValue = "6M") String range,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(analyticsService.getFailureDistribution(branch, TimeRange.resolve(range, from, to)));
+    }
+
+    // 6. Cache Stats (hit/miss/eviction counters for sizing)
+    @GetMapping("/cache-stats")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(analyticsCache.getStats());
+    }
+
+    // Bad range / granularity from the client (TimeRange, BucketGranularity, TimeBucketer) -> 400
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<?> handleBadRange(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body("Invalid range or granularity: " + e.getMessage());
     }
 }
\ No newline at end of file
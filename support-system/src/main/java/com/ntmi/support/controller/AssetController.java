@@ -1,17 +1,35 @@
 package com.ntmi.support.controller;
 
+import com.ntmi.support.cache.AssetLookupIndex;
+import com.ntmi.support.dto.AssetHealthDTO;
+import com.ntmi.support.dto.AssetSearchCriteria;
+import com.ntmi.support.dto.AssetSummary;
+import com.ntmi.support.event.BranchDataChangedEvent;
 import com.ntmi.support.model.Asset;
+import com.ntmi.support.model.AssetStatus;
 import com.ntmi.support.model.Branch;
 import com.ntmi.support.model.RepairRecord;
 import com.ntmi.support.repository.AssetRepository;
 import com.ntmi.support.repository.BranchRepository;
 import com.ntmi.support.repository.RepairRecordRepository;
+import com.ntmi.support.service.AssetHealthService;
+import com.ntmi.support.service.AssetImportService;
+import com.ntmi.support.service.AssetStatusCounters;
+import com.ntmi.support.service.AssetService;
+import com.ntmi.support.service.AssetStatusService;
+import com.ntmi.support.service.AssetTimelineService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.data.web.PagedModel;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize; // ✅ Important Import
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/assets")
@@ -27,11 +45,35 @@ public class AssetController {
     @Autowired
     private RepairRecordRepository repairRecordRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private AssetService assetService;
+
+    @Autowired
+    private AssetLookupIndex assetLookupIndex;
+
+    @Autowired
+    private AssetImportService assetImportService;
+
+    @Autowired
+    private AssetStatusService assetStatusService;
+
+    @Autowired
+    private AssetTimelineService assetTimelineService;
+
+    @Autowired
+    private AssetStatusCounters assetStatusCounters;
+
+    @Autowired
+    private AssetHealthService assetHealthService;
+
     // --- 1. READ ACTIONS ---
 
     @GetMapping
     public ResponseEntity<List<Asset>> getAllAssets() {
-        return ResponseEntity.ok(assetRepository.findAll());
+        return ResponseEntity.ok(assetService.getAllAssets());
     }
 
     // ✅ FIX: Allow BOTH 'ADMIN' and 'BRANCH_USER' (or 'BRANCH_OFFICER') to access this endpoint
@@ -39,7 +81,57 @@ public class AssetController {
     @GetMapping("/branch/{branchId}")
     @PreAuthorize("hasAnyAuthority('ADMIN', 'BRANCH_USER', 'BRANCH_OFFICER')") 
     public ResponseEntity<List<Asset>> getAssetsByBranch(@PathVariable Long branchId) {
-        return ResponseEntity.ok(assetRepository.findByBranch_BranchId(branchId));
+        return ResponseEntity.ok(assetService.getAssetsByBranch(branchId));
+    }
+
+    // ✅ Paged search for the inventory grid and the ticket asset picker
+    // e.g. /api/assets/search?q=LAP-00&branchId=3&status=ACTIVE&page=0&size=20&sort=assetCode
+    @GetMapping("/search")
+    @PreAuthorize("hasAnyAuthority('ADMIN', 'BRANCH_USER', 'BRANCH_OFFICER')")
+    public ResponseEntity<PagedModel<Asset>> searchAssets(
+            AssetSearchCriteria criteria,
+            @PageableDefault(size = 20, sort = "assetCode") Pageable pageable) {
+        return ResponseEntity.ok(new PagedModel<>(assetService.searchAssets(criteria, pageable)));
+    }
+
+    // ✅ Live status counters + availability (no DB query). Omit branchId for all branches.
+    @GetMapping("/status-counters")
+    public ResponseEntity<Map<String, Object>> getStatusCounters(@RequestParam(required = false) Long branchId) {
+        return ResponseEntity.ok(assetStatusCounters.snapshot(branchId));
+    }
+
+    // ✅ Recount the live counters from the database (normally done on a schedule)
+    @PostMapping("/status-counters/reconcile")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> reconcileStatusCounters() {
+        assetStatusCounters.reconcile();
+        return ResponseEntity.ok(assetStatusCounters.snapshot(null));
+    }
+
+    // ✅ Replacement priority: assets ranked by the nightly health score (highest risk first)
+    @GetMapping("/health")
+    public ResponseEntity<PagedModel<AssetHealthDTO>> getHealthRanking(@RequestParam(required = false) Long branchId,
+                                                                       @RequestParam(defaultValue = "0") int page,
+                                                                       @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(new PagedModel<>(assetHealthService.getRanking(branchId, page, size)));
+    }
+
+    // ✅ Run the health scoring batch now (normally nightly)
+    @PostMapping("/health/rescore")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<?> rescoreHealth() {
+        try {
+            return ResponseEntity.ok(assetHealthService.scoreAll());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // ✅ Scan / QR lookup by asset code or serial number (served from memory)
+    @GetMapping("/lookup/{code}")
+    public ResponseEntity<AssetSummary> lookupAsset(@PathVariable String code) {
+        AssetSummary summary = assetLookupIndex.lookup(code);
+        return summary != null ? ResponseEntity.ok(summary) : ResponseEntity.notFound().build();
     }
 
     // ✅ Allow history view for all authenticated users (so branch users can see repair logs)
@@ -48,6 +140,28 @@ public class AssetController {
         return ResponseEntity.ok(repairRecordRepository.findByAsset_AssetId(id));
     }
 
+    // ✅ Lifecycle timeline: tickets + status changes + repairs, newest first.
+    // Pass the returned nextCursor to get the following (older) page.
+    @GetMapping("/{id}/timeline")
+    public ResponseEntity<?> getAssetTimeline(@PathVariable Long id,
+                                              @RequestParam(required = false) String cursor,
+                                              @RequestParam(defaultValue = "" + AssetTimelineService.DEFAULT_LIMIT) int limit) {
+        try {
+            return ResponseEntity.ok(assetTimelineService.getTimeline(id, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // ✅ Recompute stored repair totals from repair history (admin maintenance)
+    @PostMapping("/repair-totals/recompute")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<?> recomputeRepairTotals() {
+        int updated = assetService.recomputeRepairTotals();
+        eventPublisher.publishEvent(new BranchDataChangedEvent(null, "ASSET"));
+        return ResponseEntity.ok().body("{\"assetsUpdated\": " + updated + "}");
+    }
+
     // --- 2. CREATE ACTION ---
 
     @PostMapping
@@ -57,20 +171,40 @@ public class AssetController {
                     .orElseThrow(() -> new RuntimeException("Branch not found"));
             
             asset.setBranch(branch);
-            if (asset.getStatus() == null) asset.setStatus("ACTIVE");
+            if (asset.getStatus() == null) asset.setStatus(AssetStatus.ACTIVE);
             
-            return ResponseEntity.ok(assetRepository.save(asset));
+            Asset saved = assetStatusService.save(asset, null, null, null);
+            eventPublisher.publishEvent(new BranchDataChangedEvent(branchId, "ASSET"));
+            return ResponseEntity.ok(saved);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error creating asset: " + e.getMessage());
         }
     }
 
+    // ✅ Bulk import (CSV with header row, NDJSON, or a JSON array). Returns counts + per-row errors.
+    // branchId is the default for rows without their own branchId / branchCode.
+    @PostMapping("/import")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<?> importAssets(@RequestParam("file") MultipartFile file,
+                                          @RequestParam(required = false) Long branchId) {
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest().body("Import file is empty");
+        }
+        try {
+            return ResponseEntity.ok(assetImportService.importAssets(file, branchId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Import failed: " + e.getMessage());
+        }
+    }
+
     // --- 3. UPDATE ACTION ---
 
     @PutMapping("/{id}")
     public ResponseEntity<?> updateAsset(@PathVariable Long id, @RequestBody Asset assetDetails) {
         Asset asset = assetRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Asset not found"));
+        Long oldBranchId = asset.getBranch().getBranchId();
+        AssetStatus oldStatus = asset.getStatus();
 
         // Basic Info
         asset.setAssetCode(assetDetails.getAssetCode());
@@ -80,7 +214,7 @@ public class AssetController {
         asset.setDeviceType(assetDetails.getDeviceType()); 
 
         // Status & Dates
-        asset.setStatus(assetDetails.getStatus());
+        if (assetDetails.getStatus() != null) asset.setStatus(assetDetails.getStatus());
         asset.setPurchasedDate(assetDetails.getPurchasedDate());
         asset.setWarrantyExpiry(assetDetails.getWarrantyExpiry());
 
@@ -91,7 +225,12 @@ public class AssetController {
             asset.setBranch(newBranch);
         }
 
-        return ResponseEntity.ok(assetRepository.save(asset));
+        Asset saved = assetStatusService.save(asset, oldStatus, oldBranchId, null);
+        eventPublisher.publishEvent(new BranchDataChangedEvent(oldBranchId, "ASSET"));
+        if (!oldBranchId.equals(saved.getBranch().getBranchId())) {
+            eventPublisher.publishEvent(new BranchDataChangedEvent(saved.getBranch().getBranchId(), "ASSET"));
+        }
+        return ResponseEntity.ok(saved);
     }
 
     // --- 4. DELETE ACTION ---
@@ -99,7 +238,9 @@ public class AssetController {
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteAsset(@PathVariable Long id) {
         try {
-            assetRepository.deleteById(id);
+            Long branchId = assetRepository.findById(id).map(a -> a.getBranch().getBranchId()).orElse(null);
+            assetStatusService.delete(id);
+            eventPublisher.publishEvent(new BranchDataChangedEvent(branchId, "ASSET"));
             return ResponseEntity.ok().body("{\"message\": \"Asset deleted successfully\"}");
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Cannot delete asset. It may be linked to tickets.");
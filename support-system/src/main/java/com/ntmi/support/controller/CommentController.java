@@ -75,19 +75,22 @@ public class CommentController {
                 // CASE 1: Branch User sent a message -> Notify Admin
                 if (ticket.getAssignedAdmin() != null) {
                     // Notify specific assigned admin
-                    notificationService.sendPrivateNotification(
+                    notificationService.notifyTicketReply(
                         ticket.getAssignedAdmin().getUsername(), 
+                        ticket.getTicketId(),
                         title, 
                         message
                     );
                 } else {
                     // Ticket not assigned yet? Notify ALL admins
-                    notificationService.notifyAllAdmins(title, message);
+                    notificationService.notifyAdminsTicketReply(ticket.getTicketId(), title, message);
                 }
             } else {
                 // CASE 2: Admin sent a message -> Notify Branch User (Creator)
-                notificationService.sendPrivateNotification(
+                // ✅ Replies within the coalescing window are merged into one notification
+                notificationService.notifyTicketReply(
                     ticket.getCreatedBy().getUsername(), 
+                    ticket.getTicketId(),
                     title, 
                     message
                 );
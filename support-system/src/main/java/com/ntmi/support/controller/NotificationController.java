@@ -1,55 +1,129 @@
 package com.ntmi.support.controller;
 
+import com.ntmi.support.dto.NotificationDTO;
 import com.ntmi.support.model.Notification;
-import com.ntmi.support.repository.NotificationRepository;
 import com.ntmi.support.repository.UserRepository;
+import com.ntmi.support.service.NotificationRetentionService;
+import com.ntmi.support.service.NotificationService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
 @RestController
 @RequestMapping("/api/notifications")
 @CrossOrigin("*")
 public class NotificationController {
 
-    @Autowired
-    private NotificationRepository notificationRepository;
-
     @Autowired
     private UserRepository userRepository;
 
     @Autowired 
     private com.ntmi.support.service.NotificationService notificationService;
 
-    // 1. Get My Notifications
+    @Autowired
+    private NotificationRetentionService retentionService;
+
+    // 1. Get My Notifications (first page of the inbox: personal + broadcasts for my role, newest first)
+    @SuppressWarnings("unchecked")
     @GetMapping("/{userId}")
-    public List<Notification> getUserNotifications(@PathVariable Long userId) {
-        return notificationRepository.findByRecipient_UserIdOrderByCreatedAtDesc(userId);
+    public List<NotificationDTO> getUserNotifications(@PathVariable Long userId) {
+        Map<String, Object> page = notificationService.getInboxPage(userId, null, NotificationService.DEFAULT_INBOX_LIMIT);
+        return (List<NotificationDTO>) page.get("items");
+    }
+
+    // 1b. Inbox page by cursor: { items, nextCursor } (nextCursor is null on the last page)
+    @GetMapping("/user/{userId}/inbox")
+    public ResponseEntity<?> getInbox(@PathVariable Long userId,
+                                      @RequestParam(required = false) String cursor,
+                                      @RequestParam(defaultValue = "" + NotificationService.DEFAULT_INBOX_LIMIT) int limit) {
+        try {
+            return ResponseEntity.ok(notificationService.getInboxPage(userId, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // 1c. Unread badge count (served from memory; changes are also pushed on /user/queue/unread)
+    @GetMapping("/user/{userId}/unread-count")
+    public Map<String, Object> getUnreadCount(@PathVariable Long userId) {
+        return Map.of("unread", notificationService.getUnreadCount(userId));
     }
 
     // 2. Mark as Read
     @PutMapping("/{id}/read")
     public Notification markAsRead(@PathVariable Long id) {
-        Notification n = notificationRepository.findById(id).orElseThrow();
-        n.setRead(true);
-        return notificationRepository.save(n);
+        Notification n = notificationService.markRead(id);
+        if (n == null) throw new NoSuchElementException("Notification not found: " + id);
+        return n;
     }
 
-    // 3. Mark All as Read for User
+    // 3. Mark All as Read for User (one UPDATE, returns how many were unread)
     @PutMapping("/user/{userId}/read-all")
-    public void markAllRead(@PathVariable Long userId) {
-        List<Notification> list = notificationRepository.findByRecipient_UserIdOrderByCreatedAtDesc(userId);
-        list.forEach(n -> n.setRead(true));
-        notificationRepository.saveAll(list);
+    public Map<String, Object> markAllRead(@PathVariable Long userId) {
+        return Map.of("marked", notificationService.markAllRead(userId));
+    }
+
+    // 3a. Mark as Read by creation time range (ISO date-times, either bound optional)
+    @PutMapping("/user/{userId}/read-range")
+    public ResponseEntity<?> markRangeRead(@PathVariable Long userId,
+                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            return ResponseEntity.ok(Map.of("marked", notificationService.markReadBetween(userId, from, to)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
     
+    // 3b. Broadcasts: read / dismiss are per user (the message itself is shared)
+    @PutMapping("/user/{userId}/broadcasts/{id}/read")
+    public ResponseEntity<?> markBroadcastRead(@PathVariable Long userId, @PathVariable Long id) {
+        return notificationService.markBroadcastRead(id, userId)
+                ? ResponseEntity.ok().build() : ResponseEntity.notFound().build();
+    }
+
+    @DeleteMapping("/user/{userId}/broadcasts/{id}")
+    public ResponseEntity<?> dismissBroadcast(@PathVariable Long userId, @PathVariable Long id) {
+        return notificationService.dismissBroadcast(id, userId)
+                ? ResponseEntity.ok().build() : ResponseEntity.notFound().build();
+    }
+
     // 4. Delete Notification
     @DeleteMapping("/{id}")
     public void deleteNotification(@PathVariable Long id) {
-        notificationRepository.deleteById(id);
+        notificationService.delete(id);
+    }
+
+    // 4b. Bulk delete: ?ids=1,2,3 or ?read=true (all read ones); returns the deleted count
+    @DeleteMapping("/user/{userId}")
+    public ResponseEntity<?> deleteNotifications(@PathVariable Long userId,
+                                                 @RequestParam(required = false) List<Long> ids,
+                                                 @RequestParam(defaultValue = "false") boolean read) {
+        if (!read && (ids == null || ids.isEmpty())) {
+            return ResponseEntity.badRequest().body("Specify ids or read=true");
+        }
+        try {
+            return ResponseEntity.ok(Map.of("deleted", notificationService.deleteNotifications(userId, ids, read)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
+    // 5. Retention sweep now (also runs nightly)
+    @PostMapping("/retention/run")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<?> runRetention() {
+        long purged = retentionService.sweep();
+        if (purged < 0) return ResponseEntity.badRequest().body("Retention sweep already running");
+        return ResponseEntity.ok(Map.of("purged", purged));
+    }
 
     @GetMapping("/test/{userId}")
     public String sendTestNotification(@PathVariable Long userId) {
@@ -0,0 +1,30 @@
+package com.ntmi.support.controller;
+
+import com.ntmi.support.model.User;
+import com.ntmi.support.service.NotificationReplayBuffer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Controller;
+
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+
+@Controller
+public class NotificationSocketController {
+
+    @Autowired
+    private NotificationReplayBuffer replayBuffer;
+
+    // 1. Replay after reconnect: SUBSCRIBE /app/notifications/replay/{lastSeq}
+    // Answered once, to this session only: { items, lastSeq, resync }
+    @SubscribeMapping("/notifications/replay/{lastSeq}")
+    public Map<String, Object> replay(@DestinationVariable long lastSeq, Principal principal) {
+        if (!(principal instanceof Authentication auth) || !(auth.getPrincipal() instanceof User user)) {
+            return Map.of("items", List.of(), "lastSeq", lastSeq, "resync", false);
+        }
+        return replayBuffer.replay(user.getUserId(), lastSeq);
+    }
+}
@@ -1,26 +1,29 @@
 package com.ntmi.support.controller;
 
-import com.ntmi.support.dto.ReliabilityDTO;
 import com.ntmi.support.dto.TicketDTO;
+import com.ntmi.support.event.BranchDataChangedEvent;
 import com.ntmi.support.model.*;
 import com.ntmi.support.repository.*;
-import com.ntmi.support.service.AssetService;
+import com.ntmi.support.service.AssetStatusCounters;
+import com.ntmi.support.service.AssetStatusService;
+import com.ntmi.support.service.DashboardService;
+import com.ntmi.support.service.FailureStatsService;
+import com.ntmi.support.service.MttrSketchService;
 import com.ntmi.support.service.NotificationService;
+import com.ntmi.support.service.RepairRecordService;
 import com.ntmi.support.service.TicketService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/tickets")
@@ -30,17 +33,24 @@ public class TicketController {
     @Autowired private TicketService ticketService;
     @Autowired private UserRepository userRepository;
     @Autowired private NotificationService notificationService;
-    @Autowired private AssetService assetService; // ✅ Added to fetch Failure Stats
+    @Autowired private DashboardService dashboardService; // ✅ Reliability stats (coalesced)
+    @Autowired private MttrSketchService mttrSketchService; // ✅ MTTR percentile sketches
+    @Autowired private RepairRecordService repairRecordService; // ✅ Repair records + cost ledger
+    @Autowired private AssetStatusService assetStatusService; // ✅ Asset status + history
+    @Autowired private AssetStatusCounters assetStatusCounters; // ✅ Live open-ticket counters
+    @Autowired private FailureStatsService failureStatsService; // ✅ Per-asset MTBF intervals
 
     @Autowired private TicketRepository ticketRepository;
     @Autowired private AssetRepository assetRepository;
     @Autowired private ErrorCategoryRepository categoryRepository;
     @Autowired private ErrorTypeRepository typeRepository;
-    @Autowired private RepairRecordRepository repairRecordRepository;
     
     // ✅ Inject TicketImageRepository
     @Autowired private TicketImageRepository ticketImageRepository; 
 
+    // ✅ Tells caches (analytics/dashboard) that a branch's data changed
+    @Autowired private ApplicationEventPublisher eventPublisher;
+
     // --- SHARED ACTIONS ---
     @PostMapping
     public ResponseEntity<?> createTicket(@RequestBody TicketDTO dto, Authentication auth) {
@@ -78,6 +88,8 @@ public class TicketController {
 
             // 1. Save Ticket
             Ticket savedTicket = ticketRepository.save(ticket);
+            assetStatusCounters.ticketStatusChanged(savedTicket, null);
+            failureStatsService.recordFailure(savedTicket);
 
             // 2. Save Images
             if (dto.getImages() != null && !dto.getImages().isEmpty()) {
@@ -91,6 +103,8 @@ public class TicketController {
                 }
             }
 
+            publishChange(savedTicket, "TICKET");
+
             // 3. Send Notification
             try {
                 notificationService.notifyAllAdmins(
@@ -120,47 +134,10 @@ public class TicketController {
     }
 
     // --- GET RELIABILITY STATS (UPDATED) ---
+    // Concurrent identical requests share one computation (see DashboardService)
     @GetMapping("/reliability")
     public ResponseEntity<Map<String, Object>> getReliabilityStats() {
-        Map<String, Object> stats = new HashMap<>();
-
-        // 1. Past Due Tickets (Older than 48 hours)
-        LocalDateTime twoDaysAgo = LocalDateTime.now().minusHours(48);
-        long pastDueCount = ticketRepository.countPastDueTickets(twoDaysAgo);
-        stats.put("pastDueTickets", pastDueCount);
-
-        // 2. Total Resolved Tickets
-        stats.put("totalResolved", ticketRepository.findAllResolvedTickets().size());
-
-        // 3. Total Repair Cost
-        Double totalCost = repairRecordRepository.sumTotalCost();
-        stats.put("totalRepairCost", totalCost != null ? totalCost : 0.0);
-
-        // 4. Avg Resolution Time (Hours)
-        // Requires SQL Server Native Query in Repository
-        Double avgTime = ticketRepository.getAverageResolutionTime();
-        stats.put("avgResolutionHours", avgTime != null ? Math.round(avgTime * 10.0) / 10.0 : 0.0);
-
-        // 5. Asset Availability (%)
-        // Requires SQL Server Native Query in Repository
-        Double availability = ticketRepository.calculateAssetAvailability();
-        stats.put("assetAvailability", availability != null ? Math.round(availability) : 100);
-
-        // 6. Top Failing Assets (Using AssetService)
-        List<ReliabilityDTO> reliabilityStats = assetService.getReliabilityStats();
-        
-        // Map DTO to structure expected by Frontend (brand, model, count)
-        List<Map<String, Object>> assetFailures = reliabilityStats.stream().limit(5).map(dto -> {
-            Map<String, Object> map = new HashMap<>();
-            map.put("brand", "N/A"); // DTO focuses on modelName
-            map.put("model", dto.getModelName());
-            map.put("count", dto.getTotalFailures());
-            return map;
-        }).collect(Collectors.toList());
-        
-        stats.put("topFailingAssets", assetFailures);
-
-        return ResponseEntity.ok(stats);
+        return ResponseEntity.ok(dashboardService.getReliabilityStats());
     }
 
     @GetMapping("/branch/{branchId}")
@@ -184,15 +161,17 @@ public class TicketController {
         Ticket ticket = ticketRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Ticket not found"));
 
+        TicketStatus previous = ticket.getStatus();
         ticket.setAssignedAdmin(admin);
         ticket.setStatus(TicketStatus.IN_PROGRESS);
         ticketRepository.save(ticket);
+        assetStatusCounters.ticketStatusChanged(ticket, previous);
 
         if (ticket.getAsset() != null) {
             Asset asset = ticket.getAsset();
-            asset.setStatus("REPAIR");
-            assetRepository.save(asset);
+            assetStatusService.changeStatus(asset, AssetStatus.REPAIR, ticket);
         }
+        publishChange(ticket, "TICKET");
 
         notificationService.send(ticket.getCreatedBy(), "Ticket In Progress", "Your ticket #" + id + " is being processed by " + admin.getFullName(), "INFO");
 
@@ -217,38 +196,34 @@ public class TicketController {
             }
         }
 
+        TicketStatus previous = ticket.getStatus();
+        boolean alreadyResolved = previous == TicketStatus.RESOLVED;
         ticket.setStatus(TicketStatus.RESOLVED);
         ticket.setResolvedAt(LocalDateTime.now());
         ticketRepository.save(ticket);
+        assetStatusCounters.ticketStatusChanged(ticket, previous);
+        if (!alreadyResolved) mttrSketchService.recordResolution(ticket);
 
         if (ticket.getAsset() != null) {
             Asset asset = ticket.getAsset();
             if (isDisposeRequest) {
-                asset.setStatus("DISPOSED");
-                assetRepository.save(asset);
-                createRepairRecord(asset, ticket, "ASSET DISPOSED: " + resolutionDetails, cost);
+                assetStatusService.changeStatus(asset, AssetStatus.DISPOSED, ticket);
+                repairRecordService.createRepairRecord(asset, ticket,
+                        RepairRecordService.DISPOSAL_PREFIX + resolutionDetails, cost, true);
             } else {
-                asset.setStatus("ACTIVE");
-                asset.setRepairCount(asset.getRepairCount() + 1);
-                assetRepository.save(asset);
-                createRepairRecord(asset, ticket, resolutionDetails, cost);
+                assetStatusService.changeStatus(asset, AssetStatus.ACTIVE, ticket);
+                repairRecordService.createRepairRecord(asset, ticket, resolutionDetails, cost, false);
             }
         }
+        publishChange(ticket, "REPAIR");
 
         notificationService.send(ticket.getCreatedBy(), "Ticket Resolved", "Your ticket #" + id + " has been resolved.", "SUCCESS");
 
         return ResponseEntity.ok(ticket);
     }
 
-    private void createRepairRecord(Asset asset, Ticket ticket, String action, BigDecimal cost) {
-        if (action != null && !action.isEmpty()) {
-            RepairRecord record = new RepairRecord();
-            record.setAsset(asset);
-            record.setTicket(ticket);
-            record.setActionTaken(action);
-            record.setRepairDate(LocalDate.now());
-            record.setCost(cost);
-            repairRecordRepository.save(record);
-        }
+    private void publishChange(Ticket ticket, String source) {
+        Long branchId = ticket.getBranch() != null ? ticket.getBranch().getBranchId() : null;
+        eventPublisher.publishEvent(new BranchDataChangedEvent(branchId, source));
     }
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.ntmi.support.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// One row of the replacement-priority ranking
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AssetHealthDTO {
+    private Long assetId;
+    private String assetCode;
+    private String model;
+    private String branchName;
+    private double score;
+    private int repairCount;
+    private int recentFailures;
+    private Double costRatio;
+    private Integer warrantyDaysLeft;
+    private LocalDateTime scoredAt;
+}
@@ -0,0 +1,40 @@
+package com.ntmi.support.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Outcome of POST /api/assets/import
+@Data
+public class AssetImportResult {
+
+    // Only the first errors are listed; the counters are always complete
+    public static final int MAX_LISTED_ERRORS = 500;
+
+    private int totalRows;
+    private int imported;
+    private int failed;
+    private long durationMs;
+    private List<RowError> errors = new ArrayList<>();
+
+    public void addError(long line, String assetCode, String message) {
+        failed++;
+        if (errors.size() < MAX_LISTED_ERRORS) {
+            errors.add(new RowError(line, assetCode, message));
+        }
+    }
+
+    public boolean isErrorsTruncated() {
+        return failed > errors.size();
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class RowError {
+        private long line;
+        private String assetCode;
+        private String message;
+    }
+}
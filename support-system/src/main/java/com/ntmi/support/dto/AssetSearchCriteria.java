@@ -0,0 +1,26 @@
+package com.ntmi.support.dto;
+
+import com.ntmi.support.model.AssetStatus;
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+// Query parameters for GET /api/assets/search (all optional)
+@Data
+public class AssetSearchCriteria {
+    private String q;               // prefix of asset code OR serial number (picker search box)
+    private String assetCode;       // prefix
+    private String serialNumber;    // prefix
+    private String brand;
+    private String model;
+    private AssetStatus status;
+    private String deviceType;
+    private Long branchId;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate warrantyFrom;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate warrantyTo;
+}
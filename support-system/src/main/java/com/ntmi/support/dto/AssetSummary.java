@@ -0,0 +1,22 @@
+package com.ntmi.support.dto;
+
+import com.ntmi.support.model.AssetStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Lightweight asset view served by the scan / QR lookup (no entity, no lazy relations)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AssetSummary {
+    private Long assetId;
+    private String assetCode;
+    private String serialNumber;
+    private Long branchId;
+    private String branchName;
+    private AssetStatus status;
+    private String brand;
+    private String model;
+    private String deviceType;
+}
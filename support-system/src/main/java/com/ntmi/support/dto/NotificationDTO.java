@@ -0,0 +1,33 @@
+package com.ntmi.support.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Inbox item: a personal notification or a role broadcast (ids are unique per kind only)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationDTO {
+    private Long id;
+    private boolean broadcast;
+    private String title;
+    private String message;
+    private String type;
+    private boolean read;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime createdAt;
+
+    // Per-user sequence number of a personal notification (null for broadcasts)
+    private Long seq;
+
+    // Broadcasts (no per-user sequence)
+    public NotificationDTO(Long id, boolean broadcast, String title, String message, String type,
+                           boolean read, LocalDateTime createdAt) {
+        this(id, broadcast, title, message, type, read, createdAt, null);
+    }
+}
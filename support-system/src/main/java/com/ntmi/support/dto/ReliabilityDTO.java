@@ -10,4 +10,6 @@ public class ReliabilityDTO {
     private long totalUnits;
     private long totalFailures;
     private double failureRate; // percentage
+    private double failuresPerUnit;
+    private Double mtbfHours;   // null when there were no failures (or no period, for all-time stats)
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.ntmi.support.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// One entry of GET /api/assets/{id}/timeline
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TimelineEvent {
+
+    // Declaration order = order of events sharing the same timestamp
+    public enum Type { TICKET, STATUS_CHANGE, REPAIR }
+
+    private Type type;
+    private Long id;               // ticketId / status change id / repair record id
+    private LocalDateTime timestamp; // repairs only have a date: start of that day
+    private String title;
+    private String detail;
+    private Long ticketId;
+    private BigDecimal cost;       // repairs only
+}
@@ -0,0 +1,37 @@
+package com.ntmi.support.dto.analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// MTBF for one asset or one model, derived from running interval sums
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MtbfStatsDTO {
+    private String key;           // asset code or model name
+    private long assets;
+    private long failures;
+    private long intervals;
+    private Double mtbfHours;     // null until there are two failures
+    private Double stdDevHours;   // sample standard deviation; null below two intervals
+    private LocalDateTime lastFailureAt;
+
+    public static MtbfStatsDTO of(String key, long assets, long failures, long intervals,
+                                  double sum, double sumSq, LocalDateTime lastFailureAt) {
+        Double mean = intervals > 0 ? sum / intervals : null;
+        Double stdDev = null;
+        if (intervals > 1) {
+            // Sample variance from the running sums (clamped: rounding can make it slightly negative)
+            double variance = Math.max(0, (sumSq - sum * sum / intervals) / (intervals - 1));
+            stdDev = round1(Math.sqrt(variance));
+        }
+        return new MtbfStatsDTO(key, assets, failures, intervals, mean != null ? round1(mean) : null, stdDev, lastFailureAt);
+    }
+
+    private static double round1(double v) {
+        return Math.round(v * 10.0) / 10.0;
+    }
+}
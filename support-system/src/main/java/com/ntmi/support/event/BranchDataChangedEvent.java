@@ -0,0 +1,20 @@
+package com.ntmi.support.event;
+
+/**
+ * Published whenever tickets, repair records or assets of a branch change.
+ * Listeners (e.g. the analytics cache) use it to drop derived data for that branch.
+ * A null branchId means "unknown / all branches".
+ */
+public class BranchDataChangedEvent {
+
+    private final Long branchId;
+    private final String source; // e.g. "TICKET", "REPAIR", "ASSET"
+
+    public BranchDataChangedEvent(Long branchId, String source) {
+        this.branchId = branchId;
+        this.source = source;
+    }
+
+    public Long getBranchId() { return branchId; }
+    public String getSource() { return source; }
+}
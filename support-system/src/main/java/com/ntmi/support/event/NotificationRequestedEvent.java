@@ -0,0 +1,69 @@
+package com.ntmi.support.event;
+
+import com.ntmi.support.model.Role;
+
+/**
+ * A notification to deliver once the publishing transaction commits.
+ * Exactly one target is set: a user (id and/or username) or every user of a role.
+ * Picked up by NotificationDispatcher, which persists and pushes it off the request thread.
+ * <p>
+ * With a coalesce key, events for the same recipient and key that arrive within the coalescing
+ * window are delivered as one notification titled "&lt;count&gt; &lt;summary&gt;" carrying the latest message.
+ */
+public class NotificationRequestedEvent {
+
+    private final Long recipientId;
+    private final String recipientUsername;
+    private final Role role;
+    private final String title;
+    private final String message;
+    private final String type;
+    private final String coalesceKey;
+    private final String summary;
+
+    private NotificationRequestedEvent(Long recipientId, String recipientUsername, Role role,
+                                       String title, String message, String type,
+                                       String coalesceKey, String summary) {
+        this.recipientId = recipientId;
+        this.recipientUsername = recipientUsername;
+        this.role = role;
+        this.title = title;
+        this.message = message;
+        this.type = type;
+        this.coalesceKey = coalesceKey;
+        this.summary = summary;
+    }
+
+    public static NotificationRequestedEvent toUser(Long userId, String username, String title, String message, String type) {
+        return new NotificationRequestedEvent(userId, username, null, title, message, type, null, null);
+    }
+
+    public static NotificationRequestedEvent toRole(Role role, String title, String message, String type) {
+        return new NotificationRequestedEvent(null, null, role, title, message, type, null, null);
+    }
+
+    // e.g. coalescing("ticket:12:replies", "new replies on Ticket #12")
+    public NotificationRequestedEvent coalescing(String key, String summary) {
+        return new NotificationRequestedEvent(recipientId, recipientUsername, role, title, message, type, key, summary);
+    }
+
+    // Same target, new content (used to emit the merged notification)
+    public NotificationRequestedEvent withContent(String title, String message, String type) {
+        return new NotificationRequestedEvent(recipientId, recipientUsername, role, title, message, type, null, null);
+    }
+
+    // Identifies the recipient(s), for grouping
+    public String targetKey() {
+        if (role != null) return "role:" + role;
+        return recipientId != null ? "user:" + recipientId : "username:" + recipientUsername;
+    }
+
+    public Long getRecipientId() { return recipientId; }
+    public String getRecipientUsername() { return recipientUsername; }
+    public Role getRole() { return role; }
+    public String getTitle() { return title; }
+    public String getMessage() { return message; }
+    public String getType() { return type; }
+    public String getCoalesceKey() { return coalesceKey; }
+    public String getSummary() { return summary; }
+}
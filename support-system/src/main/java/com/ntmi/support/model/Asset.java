@@ -6,11 +6,22 @@ import jakarta.persistence.*;
 import lombok.Data;
 import lombok.ToString;
 import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.ColumnDefault;
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 
 @Entity
-@Table(name = "assets")
+@Table(name = "assets", indexes = {
+    // asset_code is already indexed by its unique constraint
+    @Index(name = "idx_assets_serial_number", columnList = "serial_number"),
+    @Index(name = "idx_assets_branch_status", columnList = "branch_id, status"),
+    // Name kept from the original warranty_expiry index: ddl-auto=update never drops or alters an
+    // existing index, so a rename would leave two. Existing databases keep the one-column version.
+    @Index(name = "idx_assets_warranty_expiry", columnList = "warranty_expiry, status"),
+    @Index(name = "idx_assets_brand_model", columnList = "brand, model"),
+    @Index(name = "idx_assets_device_type", columnList = "device_type")
+})
 @Data
 public class Asset {
 
@@ -40,10 +51,17 @@ public class Asset {
     private Double purchaseCost;
 
     // ✅ Repair Tracking (Synced with SQL)
-    @Column(name = "repair_count")
+    // Maintained by atomic UPDATEs when a ticket is closed (see AssetRepository.addRepair),
+    // so regular entity saves never overwrite it (updatable = false).
+    @Column(name = "repair_count", updatable = false)
     private int repairCount = 0;
+
+    @Column(name = "total_repair_cost", precision = 18, scale = 2, nullable = false, updatable = false)
+    @ColumnDefault("0") // Existing rows get 0 when the column is added
+    private BigDecimal totalRepairCost = BigDecimal.ZERO;
     
-    private String status; 
+    @Enumerated(EnumType.STRING)
+    private AssetStatus status; 
 
     // --- Relationships ---
 
@@ -60,16 +78,7 @@ public class Asset {
     @EqualsAndHashCode.Exclude
     private List<RepairRecord> repairRecords;
 
-    // ✅ NEW: Calculated Field for Frontend (Not in DB)
-    // This holds the sum of all repair costs for this asset
-    @Transient 
-    private Double totalRepairCost;
-
-    public Double getTotalRepairCost() {
-        return totalRepairCost == null ? 0.0 : totalRepairCost;
-    }
-
-    public void setTotalRepairCost(Double totalRepairCost) {
-        this.totalRepairCost = totalRepairCost;
+    public BigDecimal getTotalRepairCost() {
+        return totalRepairCost == null ? BigDecimal.ZERO : totalRepairCost;
     }
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+package com.ntmi.support.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Running failure-interval statistics for one asset.
+ * <p>
+ * Every ticket raised against the asset is a failure; the time since the previous failure
+ * is one interval. Keeping count / sum / sum of squares lets MTBF and its variance be read
+ * (and pooled per model) without looking at ticket history.
+ */
+@Entity
+@Data
+@Table(name = "asset_failure_stats",
+       uniqueConstraints = @UniqueConstraint(name = "uk_failure_stats_asset", columnNames = "asset_id"))
+public class AssetFailureStats {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "asset_id", nullable = false)
+    private Long assetId;
+
+    @Column(name = "failure_count", nullable = false)
+    private long failureCount = 0;
+
+    // Intervals between consecutive failures (= failureCount - 1 once there is a failure)
+    @Column(name = "interval_count", nullable = false)
+    private long intervalCount = 0;
+
+    @Column(name = "interval_sum_hours", nullable = false)
+    private double intervalSumHours = 0;
+
+    @Column(name = "interval_sum_sq_hours", nullable = false)
+    private double intervalSumSqHours = 0;
+
+    @Column(name = "first_failure_at")
+    private LocalDateTime firstFailureAt;
+
+    @Column(name = "last_failure_at")
+    private LocalDateTime lastFailureAt;
+
+    // Adds one failure at the given time
+    public void recordFailure(LocalDateTime at) {
+        if (lastFailureAt != null && at.isAfter(lastFailureAt)) {
+            double hours = java.time.Duration.between(lastFailureAt, at).toSeconds() / 3600.0;
+            intervalCount++;
+            intervalSumHours += hours;
+            intervalSumSqHours += hours * hours;
+        }
+        failureCount++;
+        if (firstFailureAt == null || at.isBefore(firstFailureAt)) firstFailureAt = at;
+        if (lastFailureAt == null || at.isAfter(lastFailureAt)) lastFailureAt = at;
+    }
+}
@@ -0,0 +1,49 @@
+package com.ntmi.support.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Replacement-risk score per asset (0 = healthy, 100 = replace first).
+ * <p>
+ * Written in bulk by the nightly scoring batch (see AssetHealthService), read by the ranked
+ * endpoint. The inputs are stored next to the score so the ranking can be explained.
+ */
+@Entity
+@Data
+@Table(name = "asset_health_scores", indexes = {
+    @Index(name = "idx_health_score", columnList = "score, asset_id"),
+    @Index(name = "idx_health_branch_score", columnList = "branch_id, score, asset_id")
+})
+public class AssetHealthScore {
+
+    @Id
+    @Column(name = "asset_id")
+    private Long assetId;
+
+    @Column(name = "branch_id")
+    private Long branchId;
+
+    @Column(nullable = false)
+    private double score;
+
+    @Column(name = "repair_count", nullable = false)
+    private int repairCount;
+
+    // Tickets raised against the asset within the recent window
+    @Column(name = "recent_failures", nullable = false)
+    private int recentFailures;
+
+    // total repair cost / purchase cost (null when the purchase cost is unknown)
+    @Column(name = "cost_ratio")
+    private Double costRatio;
+
+    // Negative once the warranty has expired (null when unknown)
+    @Column(name = "warranty_days_left")
+    private Integer warrantyDaysLeft;
+
+    @Column(name = "scored_at", nullable = false)
+    private LocalDateTime scoredAt;
+}
@@ -0,0 +1,7 @@
+package com.ntmi.support.model;
+
+public enum AssetStatus {
+    ACTIVE,
+    REPAIR,   // a ticket is being worked on
+    DISPOSED
+}
@@ -0,0 +1,42 @@
+package com.ntmi.support.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row per asset status transition (ACTIVE -> REPAIR -> ACTIVE / DISPOSED).
+ * Written by AssetStatusService; read newest-first for the asset timeline.
+ */
+@Entity
+@Data
+@Table(name = "asset_status_changes",
+       indexes = @Index(name = "idx_status_change_asset_time", columnList = "asset_id, changed_at, id"))
+public class AssetStatusChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "asset_id", nullable = false)
+    private Long assetId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "old_status")
+    private AssetStatus oldStatus; // null for the initial status of a new asset
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "new_status", nullable = false)
+    private AssetStatus newStatus;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+
+    // Ticket that caused the change (start / close), if any
+    @Column(name = "ticket_id")
+    private Long ticketId;
+
+    @Column(name = "changed_by")
+    private String changedBy;
+}
@@ -0,0 +1,39 @@
+package com.ntmi.support.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * A notification addressed to every user of a role, stored once (fan-out on read).
+ * Per-user read / dismissed state lives in {@link BroadcastReceipt}.
+ */
+@Entity
+@Data
+@Table(name = "broadcast_notifications",
+       indexes = {
+           @Index(name = "idx_broadcast_role_created", columnList = "role, created_at, id"),
+           @Index(name = "idx_broadcast_created", columnList = "created_at") // retention
+       })
+public class BroadcastNotification {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Role role;
+
+    private String title;
+    private String message;
+
+    // Types: INFO, SUCCESS, WARNING, SECURITY
+    private String type;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
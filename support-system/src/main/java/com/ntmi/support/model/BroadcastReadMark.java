@@ -0,0 +1,24 @@
+package com.ntmi.support.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * One user's broadcast read watermark: every broadcast of their role created at or before
+ * read_before counts as read, without a {@link BroadcastReceipt} per broadcast. "Read all"
+ * only moves this forward; receipts remain for single reads and dismissals.
+ */
+@Entity
+@Data
+@Table(name = "broadcast_read_marks")
+public class BroadcastReadMark {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "read_before", nullable = false)
+    private LocalDateTime readBefore;
+}
@@ -0,0 +1,34 @@
+package com.ntmi.support.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * One user's state for one broadcast. No row = unread; dismissed = removed from that
+ * user's inbox (and counts as read).
+ */
+@Entity
+@Data
+@Table(name = "broadcast_receipts",
+       uniqueConstraints = @UniqueConstraint(name = "uk_broadcast_receipt_user", columnNames = {"user_id", "broadcast_id"}),
+       indexes = @Index(name = "idx_broadcast_receipt_broadcast", columnList = "broadcast_id"))
+public class BroadcastReceipt {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "broadcast_id", nullable = false)
+    private Long broadcastId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "read_at")
+    private LocalDateTime readAt;
+
+    @Column(nullable = false)
+    private boolean dismissed = false;
+}
@@ -0,0 +1,42 @@
+package com.ntmi.support.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * One resolution-time sketch per (day, branch, category).
+ * Percentiles for any range are computed by merging these small rows.
+ */
+@Entity
+@Data
+@Table(name = "mttr_daily_sketches",
+       uniqueConstraints = @UniqueConstraint(name = "uk_mttr_sketch_day_branch_cat",
+                                             columnNames = {"sketch_day", "branch_id", "category_id"}),
+       indexes = @Index(name = "idx_mttr_sketch_day", columnList = "sketch_day, branch_id"))
+public class MttrSketch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Day the tickets were resolved
+    @Column(name = "sketch_day", nullable = false)
+    private LocalDate day;
+
+    // Plain IDs (not relations): this is a stats table, we never need the entities
+    @Column(name = "branch_id")
+    private Long branchId;
+
+    @Column(name = "category_id")
+    private Long categoryId;
+
+    // Number of resolved tickets in the sketch (denormalized for quick totals)
+    @Column(name = "ticket_count", nullable = false)
+    private long ticketCount = 0;
+
+    // Serialized QuantileSketch of resolution times in hours
+    @Column(name = "sketch_data", columnDefinition = "VARCHAR(MAX)")
+    private String sketchData;
+}
@@ -7,7 +7,14 @@ import java.time.LocalDateTime;
 
 @Entity
 @Data
-@Table(name = "notifications")
+@Table(name = "notifications",
+       indexes = {
+           @Index(name = "idx_notifications_user_created", columnList = "user_id, created_at, id"),
+           // Retention sweep: read rows older than the cutoff
+           @Index(name = "idx_notifications_read_created", columnList = "is_read, created_at"),
+           // Replay after a reconnect: seq > last seen
+           @Index(name = "idx_notifications_user_seq", columnList = "user_id, seq")
+       })
 public class Notification {
 
     @Id
@@ -22,6 +29,9 @@ public class Notification {
 
     private boolean isRead = false;
 
+    // Per-user sequence number (see NotificationSequence); null for rows created before it existed
+    private Long seq;
+
     // ✅ FIX: This format makes the date readable by JavaScript/React
     @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
     private LocalDateTime createdAt = LocalDateTime.now();
@@ -0,0 +1,33 @@
+package com.ntmi.support.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * A read notification moved out of the live table by NotificationRetentionService
+ * (ARCHIVE mode). Keeps the original id; not shown in the inbox.
+ */
+@Entity
+@Data
+@Table(name = "notifications_archive",
+       indexes = @Index(name = "idx_notifications_archive_user_created", columnList = "user_id, created_at"))
+public class NotificationArchive {
+
+    @Id
+    private Long id;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    private String title;
+    private String message;
+    private String type;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
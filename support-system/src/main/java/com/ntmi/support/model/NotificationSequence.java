@@ -0,0 +1,21 @@
+package com.ntmi.support.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * Last per-user notification sequence number handed out by NotificationWriter.
+ * Clients remember the last seq they saw and ask for replay from there after a reconnect.
+ */
+@Entity
+@Data
+@Table(name = "notification_sequences")
+public class NotificationSequence {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "last_seq", nullable = false)
+    private long lastSeq;
+}
@@ -0,0 +1,41 @@
+package com.ntmi.support.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Pre-aggregated repair spend: one row per branch x asset x month.
+ * Updated whenever a RepairRecord is written, so cost charts read a few rows
+ * instead of scanning repair history.
+ */
+@Entity
+@Data
+@Table(name = "repair_cost_ledger",
+       uniqueConstraints = @UniqueConstraint(name = "uk_cost_ledger_branch_asset_month",
+                                             columnNames = {"branch_id", "asset_id", "ledger_month"}),
+       indexes = @Index(name = "idx_cost_ledger_month_branch", columnList = "ledger_month, branch_id"))
+public class RepairCostLedger {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "branch_id", nullable = false)
+    private Long branchId;
+
+    @Column(name = "asset_id", nullable = false)
+    private Long assetId;
+
+    // Always the 1st day of the month
+    @Column(name = "ledger_month", nullable = false)
+    private LocalDate ledgerMonth;
+
+    @Column(name = "total_cost", precision = 18, scale = 2, nullable = false)
+    private BigDecimal totalCost = BigDecimal.ZERO;
+
+    @Column(name = "repair_count", nullable = false)
+    private long repairCount = 0;
+}
@@ -10,7 +10,8 @@ import java.math.BigDecimal; // ✅ Required for precise financial data
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "repair_records")
+@Table(name = "repair_records",
+       indexes = @Index(name = "idx_repair_asset_date", columnList = "asset_id, repair_date, id"))
 @Data
 public class RepairRecord {
 
@@ -12,7 +12,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "tickets")
+@Table(name = "tickets",
+       indexes = @Index(name = "idx_tickets_asset_created", columnList = "asset_id, created_at, ticket_id"))
 @Data
 public class Ticket {
 
@@ -0,0 +1,46 @@
+package com.ntmi.support.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Precomputed warranty watchlist row: an asset in a watched status whose warranty expires
+ * within the alert window (or already has).
+ * <p>
+ * Refreshed by WarrantyAlertService; the watchlist endpoint reads only this table.
+ * alertedThreshold remembers the last threshold (30 / 7 / 0 days) a digest was sent for,
+ * so each crossing is announced exactly once.
+ */
+@Entity
+@Data
+@Table(name = "warranty_watchlist",
+       indexes = @Index(name = "idx_warranty_watch_branch_expiry", columnList = "branch_id, warranty_expiry"))
+public class WarrantyWatch {
+
+    @Id
+    @Column(name = "asset_id")
+    private Long assetId;
+
+    @Column(name = "branch_id")
+    private Long branchId;
+
+    private String branchName;
+    private String assetCode;
+    private String brand;
+    private String model;
+
+    @Enumerated(EnumType.STRING)
+    private AssetStatus status;
+
+    @Column(name = "warranty_expiry", nullable = false)
+    private LocalDate warrantyExpiry;
+
+    @Column(name = "alerted_threshold")
+    private Integer alertedThreshold;
+
+    @Column(name = "refreshed_at", nullable = false)
+    private LocalDateTime refreshedAt;
+}
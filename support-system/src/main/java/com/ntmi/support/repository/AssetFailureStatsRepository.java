@@ -0,0 +1,33 @@
+package com.ntmi.support.repository;
+
+import com.ntmi.support.model.AssetFailureStats;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface AssetFailureStatsRepository extends JpaRepository<AssetFailureStats, Long> {
+
+    Optional<AssetFailureStats> findByAssetId(Long assetId);
+
+    // Row lock so two tickets on the same asset don't lose an interval
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM AssetFailureStats s WHERE s.assetId = :assetId")
+    Optional<AssetFailureStats> findForUpdate(@Param("assetId") Long assetId);
+
+    // Pooled per model: model, assets, failures, intervals, sum, sum of squares
+    @Query("SELECT a.model, COUNT(s), SUM(s.failureCount), SUM(s.intervalCount), SUM(s.intervalSumHours), SUM(s.intervalSumSqHours) " +
+           "FROM AssetFailureStats s JOIN Asset a ON a.assetId = s.assetId " +
+           "WHERE (:branchId IS NULL OR a.branch.branchId = :branchId) " +
+           "GROUP BY a.model")
+    List<Object[]> sumByModel(@Param("branchId") Long branchId);
+
+    @Modifying
+    @Query("DELETE FROM AssetFailureStats s")
+    int deleteAllRows();
+}
@@ -0,0 +1,21 @@
+package com.ntmi.support.repository;
+
+import com.ntmi.support.dto.AssetHealthDTO;
+import com.ntmi.support.model.AssetHealthScore;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface AssetHealthScoreRepository extends JpaRepository<AssetHealthScore, Long> {
+
+    // Highest risk first; served by idx_health_score / idx_health_branch_score
+    @Query(value = "SELECT new com.ntmi.support.dto.AssetHealthDTO(a.assetId, a.assetCode, a.model, b.branchName, " +
+                   "h.score, h.repairCount, h.recentFailures, h.costRatio, h.warrantyDaysLeft, h.scoredAt) " +
+                   "FROM AssetHealthScore h JOIN Asset a ON a.assetId = h.assetId LEFT JOIN a.branch b " +
+                   "WHERE (:branchId IS NULL OR h.branchId = :branchId) " +
+                   "ORDER BY h.score DESC, h.assetId",
+           countQuery = "SELECT COUNT(h) FROM AssetHealthScore h WHERE (:branchId IS NULL OR h.branchId = :branchId)")
+    Page<AssetHealthDTO> findRanked(@Param("branchId") Long branchId, Pageable pageable);
+}
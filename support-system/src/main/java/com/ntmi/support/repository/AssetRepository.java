@@ -1,32 +1,94 @@
 package com.ntmi.support.repository;
 
+import com.ntmi.support.dto.AssetSummary;
 import com.ntmi.support.model.Asset;
+import com.ntmi.support.model.AssetStatus;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface AssetRepository extends JpaRepository<Asset, Long> {
+public interface AssetRepository extends JpaRepository<Asset, Long>, JpaSpecificationExecutor<Asset> {
     // This is used for the Dropdown in the Frontend
+    // Branch is fetched in the same query (no per-row lookups)
+    @EntityGraph(attributePaths = "branch")
     List<Asset> findByBranch_BranchId(Long branchId);
+
+    @Override
+    @EntityGraph(attributePaths = "branch")
+    List<Asset> findAll();
+
+    // Paged search (see AssetSpecifications); branch joined into the page query
+    @Override
+    @EntityGraph(attributePaths = "branch")
+    Page<Asset> findAll(Specification<Asset> spec, Pageable pageable);
+
+    // Scan lookup index load (AssetLookupIndex): one projection query, no entities
+    @Query("SELECT new com.ntmi.support.dto.AssetSummary(a.assetId, a.assetCode, a.serialNumber, " +
+           "b.branchId, b.branchName, a.status, a.brand, a.model, a.deviceType) FROM Asset a JOIN a.branch b")
+    List<AssetSummary> findAllSummaries();
+
+    // Scan lookup index miss: the asset may have been created or renamed on another node
+    @Query("SELECT new com.ntmi.support.dto.AssetSummary(a.assetId, a.assetCode, a.serialNumber, " +
+           "b.branchId, b.branchName, a.status, a.brand, a.model, a.deviceType) FROM Asset a JOIN a.branch b " +
+           "WHERE a.assetCode = :value OR a.serialNumber = :value")
+    List<AssetSummary> findSummariesByCodeOrSerial(@Param("value") String value);
+
+    // Live status counters (AssetStatusCounters) reconcile source: branchId, status, count
+    @Query("SELECT a.branch.branchId, a.status, COUNT(a) FROM Asset a GROUP BY a.branch.branchId, a.status")
+    List<Object[]> countByBranchAndStatus();
+
+    // Bulk import duplicate check: all codes in one round trip
+    @Query("SELECT a.assetCode FROM Asset a")
+    List<String> findAllAssetCodes();
+
+    // --- Denormalized repair totals ---
+
+    // Atomic increment when a ticket is closed: cost of the repair record, count 1 for a repair
+    // (0 for a disposal, which is not a repair)
+    @Modifying
+    @Query("UPDATE Asset a SET a.totalRepairCost = a.totalRepairCost + :cost, a.repairCount = a.repairCount + :count " +
+           "WHERE a.assetId = :assetId")
+    int addRepair(@Param("assetId") Long assetId, @Param("cost") BigDecimal cost, @Param("count") int count);
+
+    // Full recomputation from repair history in one statement. Disposal records add to the cost
+    // but not to the count; closes without a resolution leave no record and cannot be recounted.
+    @Modifying
+    @Query("UPDATE Asset a SET " +
+           "a.totalRepairCost = COALESCE((SELECT SUM(r.cost) FROM RepairRecord r WHERE r.asset.assetId = a.assetId), 0), " +
+           "a.repairCount = (SELECT COUNT(r) FROM RepairRecord r WHERE r.asset.assetId = a.assetId " +
+           "AND r.actionTaken NOT LIKE :disposalPrefix)")
+    int recomputeRepairTotals(@Param("disposalPrefix") String disposalPrefix);
     
     // We will use this later for the Reliability Dashboard
     @Query("SELECT a.model, COUNT(t) FROM Ticket t JOIN t.asset a GROUP BY a.model ORDER BY COUNT(t) DESC")
     List<Object[]> findUnreliableModels();
 
-    @Query("SELECT a.model, COUNT(a) FROM Asset a GROUP BY a.model")
-    List<Object[]> countTotalAssetsByModel();
-
-    // 2. Count Total Tickets per Model (e.g., Dell Latitude: 20 tickets)
-    @Query("SELECT t.asset.model, COUNT(t) FROM Ticket t WHERE t.asset IS NOT NULL GROUP BY t.asset.model")
-    List<Object[]> countTicketsByModel();
-
+    // Reliability per model in one grouped query: model, units, failures (tickets created in [from, to)).
+    // Units are the model's assets (optionally in one branch); the LEFT JOIN keeps models without tickets.
+    @Query("SELECT a.model, COUNT(DISTINCT a.assetId), COUNT(t.ticketId) FROM Asset a " +
+           "LEFT JOIN Ticket t ON t.asset = a AND t.createdAt >= :from AND t.createdAt < :to " +
+           "WHERE (:branchId IS NULL OR a.branch.branchId = :branchId) " +
+           "GROUP BY a.model")
+    List<Object[]> findModelReliability(@Param("branchId") Long branchId,
+                                        @Param("from") LocalDateTime from,
+                                        @Param("to") LocalDateTime to);
 
     @Query("SELECT a.model, COUNT(a), " +
-           "SUM(CASE WHEN a.status IN ('REPAIR', 'DISPOSED') THEN 1 ELSE 0 END) " +
+           "SUM(CASE WHEN a.status IN (com.ntmi.support.model.AssetStatus.REPAIR, com.ntmi.support.model.AssetStatus.DISPOSED) THEN 1 ELSE 0 END) " +
            "FROM Asset a GROUP BY a.model")
     List<Object[]> getReliabilityStatsRaw();
     
@@ -35,5 +97,11 @@ public interface AssetRepository extends JpaRepository<Asset, Long> {
 
 
 long countByBranch_BranchId(Long branchId);
-List<Asset> findByWarrantyExpiryBefore(LocalDate date);
-List<Asset> findByBranch_BranchIdAndWarrantyExpiryBefore(Long branchId, LocalDate date);}
+
+    // Warranty watchlist source: range scan on warranty_expiry with the status filter in SQL
+    // (idx_assets_warranty_expiry). assetId, assetCode, brand, model, status, warrantyExpiry, branchId, branchName
+    @Query("SELECT a.assetId, a.assetCode, a.brand, a.model, a.status, a.warrantyExpiry, b.branchId, b.branchName " +
+           "FROM Asset a LEFT JOIN a.branch b " +
+           "WHERE a.warrantyExpiry < :before AND a.status IN :statuses")
+    List<Object[]> findWarrantyCandidates(@Param("before") LocalDate before, @Param("statuses") Collection<AssetStatus> statuses);
+}
@@ -0,0 +1,88 @@
+package com.ntmi.support.repository;
+
+import com.ntmi.support.dto.AssetSearchCriteria;
+import com.ntmi.support.model.Asset;
+import com.ntmi.support.model.AssetStatus;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+
+/**
+ * Filters for the asset search. Text matches are prefix-only ("ABC%") so SQL Server can
+ * seek the asset_code / serial_number indexes; a leading wildcard would force a scan.
+ * No LOWER() either: the column collation is already case-insensitive.
+ */
+public final class AssetSpecifications {
+
+    private static final char ESCAPE = '\\';
+
+    private AssetSpecifications() {}
+
+    public static Specification<Asset> fromCriteria(AssetSearchCriteria c) {
+        return Specification.allOf(
+                codeOrSerialStartsWith(c.getQ()),
+                startsWith("assetCode", c.getAssetCode()),
+                startsWith("serialNumber", c.getSerialNumber()),
+                equalTo("brand", c.getBrand()),
+                equalTo("model", c.getModel()),
+                hasStatus(c.getStatus()),
+                equalTo("deviceType", c.getDeviceType()),
+                inBranch(c.getBranchId()),
+                warrantyBetween(c.getWarrantyFrom(), c.getWarrantyTo()));
+    }
+
+    public static Specification<Asset> codeOrSerialStartsWith(String prefix) {
+        if (isBlank(prefix)) return Specification.unrestricted();
+        String pattern = prefixPattern(prefix);
+        return (root, query, cb) -> cb.or(
+                cb.like(root.get("assetCode"), pattern, ESCAPE),
+                cb.like(root.get("serialNumber"), pattern, ESCAPE));
+    }
+
+    public static Specification<Asset> startsWith(String attribute, String prefix) {
+        if (isBlank(prefix)) return Specification.unrestricted();
+        String pattern = prefixPattern(prefix);
+        return (root, query, cb) -> cb.like(root.get(attribute), pattern, ESCAPE);
+    }
+
+    public static Specification<Asset> equalTo(String attribute, String value) {
+        if (isBlank(value)) return Specification.unrestricted();
+        return (root, query, cb) -> cb.equal(root.get(attribute), value.trim());
+    }
+
+    public static Specification<Asset> hasStatus(AssetStatus status) {
+        if (status == null) return Specification.unrestricted();
+        return (root, query, cb) -> cb.equal(root.get("status"), status);
+    }
+
+    public static Specification<Asset> inBranch(Long branchId) {
+        if (branchId == null) return Specification.unrestricted();
+        return (root, query, cb) -> cb.equal(root.get("branch").get("branchId"), branchId);
+    }
+
+    // Inclusive warranty window; either end may be open
+    public static Specification<Asset> warrantyBetween(LocalDate from, LocalDate to) {
+        if (from == null && to == null) return Specification.unrestricted();
+        return (root, query, cb) -> {
+            if (from == null) return cb.lessThanOrEqualTo(root.get("warrantyExpiry"), to);
+            if (to == null) return cb.greaterThanOrEqualTo(root.get("warrantyExpiry"), from);
+            return cb.between(root.get("warrantyExpiry"), from, to);
+        };
+    }
+
+    // --- Helpers ---
+
+    // User input is literal: escape LIKE wildcards before appending '%'
+    private static String prefixPattern(String prefix) {
+        StringBuilder sb = new StringBuilder();
+        for (char ch : prefix.trim().toCharArray()) {
+            if (ch == '%' || ch == '_' || ch == '[' || ch == ESCAPE) sb.append(ESCAPE);
+            sb.append(ch);
+        }
+        return sb.append('%').toString();
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.isBlank();
+    }
+}
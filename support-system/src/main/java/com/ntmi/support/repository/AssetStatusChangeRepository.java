@@ -0,0 +1,27 @@
+package com.ntmi.support.repository;
+
+import com.ntmi.support.model.AssetStatusChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface AssetStatusChangeRepository extends JpaRepository<AssetStatusChange, Long> {
+
+    // Timeline page (newest first, keyset on changedAt + id): id, changedAt, oldStatus, newStatus, ticketId, changedBy
+    @Query("SELECT c.id, c.changedAt, c.oldStatus, c.newStatus, c.ticketId, c.changedBy FROM AssetStatusChange c " +
+           "WHERE c.assetId = :assetId AND (c.changedAt < :before OR (c.changedAt = :before AND c.id < :beforeId)) " +
+           "ORDER BY c.changedAt DESC, c.id DESC")
+    List<Object[]> findTimelinePage(@Param("assetId") Long assetId,
+                                    @Param("before") LocalDateTime before,
+                                    @Param("beforeId") Long beforeId,
+                                    Pageable limit);
+
+    @Modifying
+    @Query("DELETE FROM AssetStatusChange c WHERE c.assetId = :assetId")
+    int deleteByAssetId(@Param("assetId") Long assetId);
+}
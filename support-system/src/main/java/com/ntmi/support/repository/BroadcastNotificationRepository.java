@@ -0,0 +1,53 @@
+package com.ntmi.support.repository;
+
+import com.ntmi.support.dto.NotificationDTO;
+import com.ntmi.support.model.BroadcastNotification;
+import com.ntmi.support.model.Role;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface BroadcastNotificationRepository extends JpaRepository<BroadcastNotification, Long> {
+
+    // Broadcasts for the role the user has not dismissed, keyset page, newest first.
+    // Read = a read receipt, or created at / before the user's read watermark
+    @Query("SELECT new com.ntmi.support.dto.NotificationDTO(b.id, true, b.title, b.message, b.type, " +
+           "CASE WHEN r.readAt IS NOT NULL OR b.createdAt <= m.readBefore THEN true ELSE false END, b.createdAt) " +
+           "FROM BroadcastNotification b " +
+           "LEFT JOIN BroadcastReceipt r ON r.broadcastId = b.id AND r.userId = :userId " +
+           "LEFT JOIN BroadcastReadMark m ON m.userId = :userId " +
+           "WHERE b.role = :role AND (r.id IS NULL OR r.dismissed = false) " +
+           "AND (b.createdAt < :before OR (b.createdAt = :before AND b.id < :beforeId)) " +
+           "ORDER BY b.createdAt DESC, b.id DESC")
+    List<NotificationDTO> findInboxPage(@Param("role") Role role, @Param("userId") Long userId,
+                                        @Param("before") LocalDateTime before, @Param("beforeId") long beforeId,
+                                        Pageable pageable);
+
+    // Unread = after the user's read watermark (a new user's starts at creation) and no receipt
+    @Query("SELECT COUNT(b) FROM BroadcastNotification b LEFT JOIN BroadcastReadMark m ON m.userId = :userId " +
+           "WHERE b.role = :role AND (m.readBefore IS NULL OR b.createdAt > m.readBefore) AND NOT EXISTS " +
+           "(SELECT r.id FROM BroadcastReceipt r WHERE r.broadcastId = b.id AND r.userId = :userId)")
+    long countUnread(@Param("role") Role role, @Param("userId") Long userId);
+
+    // Unread broadcasts in (after, upTo]: what moving the watermark from after to upTo marks read
+    @Query("SELECT COUNT(b) FROM BroadcastNotification b WHERE b.role = :role " +
+           "AND b.createdAt > :after AND b.createdAt <= :upTo AND NOT EXISTS " +
+           "(SELECT r.id FROM BroadcastReceipt r WHERE r.broadcastId = b.id AND r.userId = :userId)")
+    long countUnreadBetween(@Param("role") Role role, @Param("userId") Long userId,
+                            @Param("after") LocalDateTime after, @Param("upTo") LocalDateTime upTo);
+
+    // --- Retention (idx_broadcast_created) ---
+
+    @Query("SELECT b.id FROM BroadcastNotification b WHERE b.createdAt < :cutoff ORDER BY b.createdAt")
+    List<Long> findCreatedBefore(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM BroadcastNotification b WHERE b.id IN :ids")
+    int deleteAllByIds(@Param("ids") Collection<Long> ids);
+}
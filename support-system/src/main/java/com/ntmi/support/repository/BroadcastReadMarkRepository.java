@@ -0,0 +1,26 @@
+package com.ntmi.support.repository;
+
+import com.ntmi.support.model.BroadcastReadMark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface BroadcastReadMarkRepository extends JpaRepository<BroadcastReadMark, Long> {
+
+    @Query("SELECT m.readBefore FROM BroadcastReadMark m WHERE m.userId = :userId")
+    Optional<LocalDateTime> findReadBefore(@Param("userId") Long userId);
+
+    // Only ever forward; 0 rows = no mark yet or already at / past readBefore
+    @Modifying
+    @Query("UPDATE BroadcastReadMark m SET m.readBefore = :readBefore WHERE m.userId = :userId AND m.readBefore < :readBefore")
+    int advance(@Param("userId") Long userId, @Param("readBefore") LocalDateTime readBefore);
+
+    // Plain INSERT (not a merge): a concurrent first insert must fail on the key
+    @Modifying
+    @Query("INSERT INTO BroadcastReadMark (userId, readBefore) VALUES (:userId, :readBefore)")
+    int insertMark(@Param("userId") Long userId, @Param("readBefore") LocalDateTime readBefore);
+}
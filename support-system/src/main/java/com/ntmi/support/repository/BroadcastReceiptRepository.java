@@ -0,0 +1,20 @@
+package com.ntmi.support.repository;
+
+import com.ntmi.support.model.BroadcastReceipt;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.Optional;
+
+public interface BroadcastReceiptRepository extends JpaRepository<BroadcastReceipt, Long> {
+
+    Optional<BroadcastReceipt> findByBroadcastIdAndUserId(Long broadcastId, Long userId);
+
+    // Retention: receipts go with their broadcast (idx_broadcast_receipt_broadcast)
+    @Modifying
+    @Query("DELETE FROM BroadcastReceipt r WHERE r.broadcastId IN :broadcastIds")
+    int deleteByBroadcastIds(@Param("broadcastIds") Collection<Long> broadcastIds);
+}
@@ -0,0 +1,37 @@
+package com.ntmi.support.repository;
+
+import com.ntmi.support.model.MttrSketch;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+public interface MttrSketchRepository extends JpaRepository<MttrSketch, Long> {
+
+    // Row lock so concurrent resolutions on the same day/branch/category don't lose updates
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM MttrSketch s WHERE s.day = :day " +
+           "AND ((:branchId IS NULL AND s.branchId IS NULL) OR s.branchId = :branchId) " +
+           "AND ((:categoryId IS NULL AND s.categoryId IS NULL) OR s.categoryId = :categoryId)")
+    Optional<MttrSketch> findForUpdate(@Param("day") LocalDate day,
+                                       @Param("branchId") Long branchId,
+                                       @Param("categoryId") Long categoryId);
+
+    @Query("SELECT s FROM MttrSketch s WHERE s.day BETWEEN :from AND :to " +
+           "AND (:branchId IS NULL OR s.branchId = :branchId) " +
+           "AND (:categoryId IS NULL OR s.categoryId = :categoryId)")
+    List<MttrSketch> findInRange(@Param("branchId") Long branchId,
+                                 @Param("categoryId") Long categoryId,
+                                 @Param("from") LocalDate from,
+                                 @Param("to") LocalDate to);
+
+    @Modifying
+    @Query("DELETE FROM MttrSketch s WHERE s.day BETWEEN :from AND :to")
+    int deleteInRange(@Param("from") LocalDate from, @Param("to") LocalDate to);
+}
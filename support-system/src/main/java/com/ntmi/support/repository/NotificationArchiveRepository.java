@@ -0,0 +1,20 @@
+package com.ntmi.support.repository;
+
+import com.ntmi.support.model.NotificationArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+public interface NotificationArchiveRepository extends JpaRepository<NotificationArchive, Long> {
+
+    // Copies live rows into the archive in one statement (the caller deletes them afterwards)
+    @Modifying
+    @Query("INSERT INTO NotificationArchive (id, userId, title, message, type, createdAt, archivedAt) " +
+           "SELECT n.id, n.recipient.userId, n.title, n.message, n.type, n.createdAt, :archivedAt " +
+           "FROM Notification n WHERE n.id IN :ids")
+    int copyFromLive(@Param("ids") Collection<Long> ids, @Param("archivedAt") LocalDateTime archivedAt);
+}
@@ -1,14 +1,74 @@
 package com.ntmi.support.repository;
 
+import com.ntmi.support.dto.NotificationDTO;
 import com.ntmi.support.model.Notification;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
-    // Fetch notifications for a specific user, sorted by newest first
-    List<Notification> findByRecipient_UserIdOrderByCreatedAtDesc(Long userId);
-    
     // Optional: Count unread
     long countByRecipient_UserIdAndIsReadFalse(Long userId);
-}
\ No newline at end of file
+
+    // Inbox keyset page: strictly older than (before, beforeId), newest first (idx_notifications_user_created)
+    @Query("SELECT new com.ntmi.support.dto.NotificationDTO(n.id, false, n.title, n.message, n.type, n.isRead, n.createdAt, n.seq) " +
+           "FROM Notification n WHERE n.recipient.userId = :userId " +
+           "AND (n.createdAt < :before OR (n.createdAt = :before AND n.id < :beforeId)) " +
+           "ORDER BY n.createdAt DESC, n.id DESC")
+    List<NotificationDTO> findInboxPage(@Param("userId") Long userId, @Param("before") LocalDateTime before,
+                                        @Param("beforeId") long beforeId, Pageable pageable);
+
+    // Conditional, so concurrent clicks count the read once
+    @Modifying
+    @Query("UPDATE Notification n SET n.isRead = true WHERE n.id = :id AND n.isRead = false")
+    int markRead(@Param("id") Long id);
+
+    // Missed notifications after a reconnect, oldest first (idx_notifications_user_seq)
+    @Query("SELECT new com.ntmi.support.dto.NotificationDTO(n.id, false, n.title, n.message, n.type, n.isRead, n.createdAt, n.seq) " +
+           "FROM Notification n WHERE n.recipient.userId = :userId AND n.seq > :afterSeq ORDER BY n.seq")
+    List<NotificationDTO> findAfterSeq(@Param("userId") Long userId, @Param("afterSeq") long afterSeq, Pageable pageable);
+
+    // --- Bulk (one statement each, no entities loaded) ---
+
+    @Modifying
+    @Query("UPDATE Notification n SET n.isRead = true WHERE n.recipient.userId = :userId AND n.isRead = false")
+    int markAllRead(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("UPDATE Notification n SET n.isRead = true WHERE n.recipient.userId = :userId AND n.isRead = false " +
+           "AND n.createdAt >= :from AND n.createdAt <= :to")
+    int markReadBetween(@Param("userId") Long userId, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Conditional: 1 only for the request whose delete removed the row while it was still unread
+    @Modifying
+    @Query("DELETE FROM Notification n WHERE n.id = :id AND n.isRead = false")
+    int deleteIfUnread(@Param("id") Long id);
+
+    @Modifying
+    @Query("DELETE FROM Notification n WHERE n.id = :id")
+    int deleteOne(@Param("id") Long id);
+
+    @Modifying
+    @Query("DELETE FROM Notification n WHERE n.recipient.userId = :userId AND n.id IN :ids")
+    int deleteByIds(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("DELETE FROM Notification n WHERE n.recipient.userId = :userId AND n.isRead = true")
+    int deleteAllRead(@Param("userId") Long userId);
+
+    // --- Retention (idx_notifications_read_created) ---
+
+    @Query("SELECT n.id FROM Notification n WHERE n.isRead = true AND n.createdAt < :cutoff ORDER BY n.createdAt")
+    List<Long> findReadBefore(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM Notification n WHERE n.id IN :ids")
+    int deleteAllByIds(@Param("ids") Collection<Long> ids);
+}
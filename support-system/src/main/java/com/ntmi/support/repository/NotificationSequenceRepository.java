@@ -0,0 +1,25 @@
+package com.ntmi.support.repository;
+
+import com.ntmi.support.model.NotificationSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface NotificationSequenceRepository extends JpaRepository<NotificationSequence, Long> {
+
+    // Row lock until commit: one writer per user at a time, so seqs are gap-free
+    @Modifying
+    @Query("UPDATE NotificationSequence s SET s.lastSeq = s.lastSeq + 1 WHERE s.userId = :userId")
+    int increment(@Param("userId") Long userId);
+
+    // Plain INSERT (not a merge): a concurrent first insert must fail on the key, not overwrite
+    @Modifying
+    @Query("INSERT INTO NotificationSequence (userId, lastSeq) VALUES (:userId, 1)")
+    int insertFirst(@Param("userId") Long userId);
+
+    @Query("SELECT s.lastSeq FROM NotificationSequence s WHERE s.userId = :userId")
+    Optional<Long> findLastSeq(@Param("userId") Long userId);
+}
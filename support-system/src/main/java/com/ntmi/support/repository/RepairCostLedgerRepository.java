@@ -0,0 +1,43 @@
+package com.ntmi.support.repository;
+
+import com.ntmi.support.model.RepairCostLedger;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface RepairCostLedgerRepository extends JpaRepository<RepairCostLedger, Long> {
+
+    // Atomic in-place increment; returns 0 when the month row doesn't exist yet
+    @Modifying
+    @Query("UPDATE RepairCostLedger l SET l.totalCost = l.totalCost + :cost, l.repairCount = l.repairCount + 1 " +
+           "WHERE l.branchId = :branchId AND l.assetId = :assetId AND l.ledgerMonth = :month")
+    int increment(@Param("branchId") Long branchId,
+                  @Param("assetId") Long assetId,
+                  @Param("month") LocalDate month,
+                  @Param("cost") BigDecimal cost);
+
+    // Monthly totals (cost, repair count) for the chart range
+    @Query("SELECT l.ledgerMonth, SUM(l.totalCost), SUM(l.repairCount) FROM RepairCostLedger l " +
+           "WHERE l.ledgerMonth BETWEEN :from AND :to " +
+           "AND (:branchId IS NULL OR l.branchId = :branchId) " +
+           "GROUP BY l.ledgerMonth")
+    List<Object[]> sumByMonth(@Param("branchId") Long branchId,
+                              @Param("from") LocalDate from,
+                              @Param("to") LocalDate to);
+
+    // Branch cost report: branch name, month, total cost, repairs
+    @Query("SELECT b.branchName, l.ledgerMonth, SUM(l.totalCost), SUM(l.repairCount) " +
+           "FROM RepairCostLedger l, Branch b WHERE b.branchId = l.branchId " +
+           "AND l.ledgerMonth BETWEEN :from AND :to " +
+           "GROUP BY b.branchName, l.ledgerMonth ORDER BY l.ledgerMonth DESC, b.branchName")
+    List<Object[]> findMonthlyCostsByBranch(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Modifying
+    @Query("DELETE FROM RepairCostLedger l")
+    int deleteAllRows();
+}
@@ -1,34 +1,48 @@
 package com.ntmi.support.repository;
 
 import com.ntmi.support.model.RepairRecord;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
 import java.util.List;
-import java.util.Map;
 
 public interface RepairRecordRepository extends JpaRepository<RepairRecord, Long> {
 
     // ✅ FIX: Add this line to allow searching repairs by Asset ID
     List<RepairRecord> findByAsset_AssetId(Long assetId);
 
-    // --- Existing Monthly Cost Query (Keep this) ---
-    @Query(value = """
-        SELECT 
-            b.branch_name AS branch, 
-            FORMAT(r.repair_date, 'yyyy-MM') AS month, 
-            SUM(r.cost) AS totalCost 
-        FROM repair_records r
-        JOIN assets a ON r.asset_id = a.asset_id
-        JOIN branches b ON a.branch_id = b.branch_id
-        GROUP BY b.branch_name, FORMAT(r.repair_date, 'yyyy-MM')
-        ORDER BY month DESC
-    """, nativeQuery = true)
-    List<Map<String, Object>> findMonthlyCostsByBranch();
+    // Asset timeline page (newest first, keyset on repairDate + id): id, repairDate, actionTaken, cost, ticketId.
+    // LEFT JOIN: repairs without a ticket are listed too. Rows without a repairDate cannot be placed in time
+    // and are left out (the app always sets it; only hand-entered legacy rows lack one).
+    @Query("SELECT r.id, r.repairDate, r.actionTaken, r.cost, t.ticketId FROM RepairRecord r LEFT JOIN r.ticket t " +
+           "WHERE r.asset.assetId = :assetId AND (r.repairDate < :before OR (r.repairDate = :before AND r.id < :beforeId)) " +
+           "ORDER BY r.repairDate DESC, r.id DESC")
+    List<Object[]> findTimelinePage(@Param("assetId") Long assetId,
+                                    @Param("before") LocalDate before,
+                                    @Param("beforeId") Long beforeId,
+                                    Pageable limit);
+
+    // Ledger rebuild source: branchId, assetId, year, month, total cost, repair count
+    @Query("SELECT a.branch.branchId, a.assetId, YEAR(r.repairDate), MONTH(r.repairDate), SUM(r.cost), COUNT(r) " +
+           "FROM RepairRecord r JOIN r.asset a WHERE r.repairDate IS NOT NULL " +
+           "GROUP BY a.branch.branchId, a.assetId, YEAR(r.repairDate), MONTH(r.repairDate)")
+    List<Object[]> sumCostsByBranchAssetMonth();
+
 List<RepairRecord> findByRepairDateAfter(LocalDate date);
 List<RepairRecord> findByAsset_Branch_BranchIdAndRepairDateAfter(Long branchId, LocalDate date);
 
+    // Cost per repair day (one grouped pass; the analytics bucketer folds days into weeks/months)
+    @Query("SELECT r.repairDate, SUM(r.cost), COUNT(r) FROM RepairRecord r " +
+           "WHERE r.repairDate BETWEEN :from AND :to " +
+           "AND (:branchId IS NULL OR r.asset.branch.branchId = :branchId) " +
+           "GROUP BY r.repairDate")
+    List<Object[]> sumCostsByDay(@Param("branchId") Long branchId,
+                                 @Param("from") LocalDate from,
+                                 @Param("to") LocalDate to);
+
     // Calculate total lifetime cost of all repairs
     @Query("SELECT SUM(r.cost) FROM RepairRecord r")
     Double sumTotalCost();
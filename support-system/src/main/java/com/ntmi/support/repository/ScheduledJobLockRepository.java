@@ -0,0 +1,29 @@
+package com.ntmi.support.repository;
+
+import com.ntmi.support.model.ScheduledJobLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+public interface ScheduledJobLockRepository extends JpaRepository<ScheduledJobLock, String> {
+
+    // Takes an expired lock; 0 rows = held by another node (or no row yet)
+    @Modifying
+    @Query("UPDATE ScheduledJobLock l SET l.lockedAt = :now, l.lockedUntil = :until, l.lockedBy = :node " +
+           "WHERE l.name = :name AND l.lockedUntil <= :now")
+    int acquire(@Param("name") String name, @Param("now") LocalDateTime now,
+                @Param("until") LocalDateTime until, @Param("node") String node);
+
+    // First run of a job. Plain INSERT (not a merge): a concurrent first insert must fail on the key
+    @Modifying
+    @Query("INSERT INTO ScheduledJobLock (name, lockedAt, lockedUntil, lockedBy) VALUES (:name, :now, :until, :node)")
+    int insertLock(@Param("name") String name, @Param("now") LocalDateTime now,
+                   @Param("until") LocalDateTime until, @Param("node") String node);
+
+    @Modifying
+    @Query("UPDATE ScheduledJobLock l SET l.lockedUntil = :until WHERE l.name = :name AND l.lockedBy = :node")
+    int release(@Param("name") String name, @Param("node") String node, @Param("until") LocalDateTime until);
+}
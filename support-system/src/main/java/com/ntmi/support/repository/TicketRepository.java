@@ -2,12 +2,14 @@ package com.ntmi.support.repository;
 
 import com.ntmi.support.model.Ticket;
 import com.ntmi.support.model.TicketStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -46,8 +48,16 @@ public interface TicketRepository extends JpaRepository<Ticket, Long> {
     List<Ticket> findAllResolvedTickets();
 
     List<Ticket> findByCreatedAtAfter(LocalDateTime date);
+    List<Ticket> findByCreatedAtGreaterThanEqualAndCreatedAtLessThan(LocalDateTime from, LocalDateTime to);
+    List<Ticket> findByBranch_BranchIdAndCreatedAtGreaterThanEqualAndCreatedAtLessThan(Long branchId, LocalDateTime from, LocalDateTime to);
     List<Ticket> findByBranch_BranchIdAndCreatedAtAfter(Long branchId, LocalDateTime date);
 
+    // Lightweight rows for rebuilding MTTR sketches: createdAt, resolvedAt, branchId, categoryId
+    @Query("SELECT t.createdAt, t.resolvedAt, b.branchId, c.categoryId FROM Ticket t " +
+           "LEFT JOIN t.branch b LEFT JOIN t.errorCategory c " +
+           "WHERE t.resolvedAt IS NOT NULL AND t.resolvedAt >= :from AND t.resolvedAt < :to")
+    List<Object[]> findResolutionTimes(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
     @Query("SELECT t.asset.brand, t.asset.model, COUNT(t) " +
            "FROM Ticket t " +
            "WHERE t.asset IS NOT NULL " +
@@ -66,12 +76,23 @@ public interface TicketRepository extends JpaRepository<Ticket, Long> {
               nativeQuery = true)
        Double getAverageResolutionTime();
 
-       // 2. Asset Availability (SQL Server Native)
-       @Query(value = "SELECT ((SELECT COUNT(*) FROM assets) - COUNT(DISTINCT asset_id)) * 100.0 / (SELECT COUNT(*) FROM assets) " +
-              "FROM tickets " +
-              "WHERE status IN ('OPEN', 'IN_PROGRESS')", 
-              nativeQuery = true)
-       Double calculateAssetAvailability();
-
-    
-}
\ No newline at end of file
+    // Asset timeline page (newest first, keyset on createdAt + id) without loading the ticket graph:
+    // ticketId, createdAt, ticketCode, subject, status, priority
+    @Query("SELECT t.ticketId, t.createdAt, t.ticketCode, t.subject, t.status, t.priority FROM Ticket t " +
+           "WHERE t.asset.assetId = :assetId AND (t.createdAt < :before OR (t.createdAt = :before AND t.ticketId < :beforeId)) " +
+           "ORDER BY t.createdAt DESC, t.ticketId DESC")
+    List<Object[]> findAssetTimelinePage(@Param("assetId") Long assetId,
+                                         @Param("before") LocalDateTime before,
+                                         @Param("beforeId") Long beforeId,
+                                         Pageable limit);
+
+    // Live asset counters reconcile source: assetId, asset's branchId, number of tickets in the given statuses
+    @Query("SELECT a.assetId, a.branch.branchId, COUNT(t) FROM Ticket t JOIN t.asset a " +
+           "WHERE t.status IN :statuses GROUP BY a.assetId, a.branch.branchId")
+    List<Object[]> countOpenTicketsByAsset(@Param("statuses") Collection<TicketStatus> statuses);
+
+    // Failure stats rebuild source: assetId, createdAt for every ticket raised against an asset
+    @Query("SELECT t.asset.assetId, t.createdAt FROM Ticket t WHERE t.asset IS NOT NULL AND t.createdAt IS NOT NULL " +
+           "ORDER BY t.asset.assetId, t.createdAt")
+    List<Object[]> findFailureTimesByAsset();
+}
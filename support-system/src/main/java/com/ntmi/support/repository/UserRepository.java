@@ -20,4 +20,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     // ✅ ADDED: Find all users by Role (Needed for Notifications)
     List<User> findByRole(Role role);
+
+    // Users of one branch with a given role (branch-level digests)
+    List<User> findByBranch_BranchIdAndRole(Long branchId, Role role);
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.ntmi.support.repository;
+
+import com.ntmi.support.model.WarrantyWatch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface WarrantyWatchRepository extends JpaRepository<WarrantyWatch, Long> {
+
+    @Query("SELECT w FROM WarrantyWatch w WHERE (:branchId IS NULL OR w.branchId = :branchId) " +
+           "ORDER BY w.warrantyExpiry, w.assetId")
+    List<WarrantyWatch> findWatchlist(@Param("branchId") Long branchId);
+}
@@ -0,0 +1,96 @@
+package com.ntmi.support.scheduler;
+
+import com.ntmi.support.repository.ScheduledJobLockRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Runs a scheduled job on one node at a time when several nodes share the database.
+ * <p>
+ * Every node fires the same cron; the first to move the job's row in scheduled_job_locks
+ * runs it, the others skip. The lock is held for at least min-hold, so a node whose clock
+ * (or scheduler) is a little late does not run the job a second time, and at most max-hold,
+ * so a node that dies mid-run does not block the job for good. Jobs that only touch the
+ * node's own memory do not need this.
+ */
+@Component
+public class ClusterJobLock {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterJobLock.class);
+
+    @Autowired
+    private ScheduledJobLockRepository lockRepository;
+
+    @Value("${scheduling.lock.min-hold:PT1M}")
+    private Duration minHold;
+
+    @Value("${scheduling.lock.max-hold:PT2H}")
+    private Duration maxHold;
+
+    // pid@host plus a random part (two nodes may share a host)
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID().toString().substring(0, 8);
+
+    // Lock rows commit on their own, whatever the caller's transaction does
+    private TransactionTemplate requiresNew;
+
+    @Autowired
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Runs the task unless another node holds the job's lock.
+     *
+     * @return false if the run was skipped
+     */
+    public boolean runExclusively(String job, Runnable task) {
+        LocalDateTime acquiredAt = LocalDateTime.now();
+        if (!acquire(job, acquiredAt)) {
+            logger.info("Scheduled job {} skipped: running or just run on another node", job);
+            return false;
+        }
+        try {
+            task.run();
+        } finally {
+            release(job, acquiredAt);
+        }
+        return true;
+    }
+
+    private boolean acquire(String job, LocalDateTime now) {
+        LocalDateTime until = now.plus(maxHold);
+        try {
+            Boolean acquired = requiresNew.execute(status ->
+                    lockRepository.acquire(job, now, until, nodeId) == 1
+                            || (!lockRepository.existsById(job) && lockRepository.insertLock(job, now, until, nodeId) == 1));
+            return Boolean.TRUE.equals(acquired);
+        } catch (DataIntegrityViolationException e) {
+            // Another node inserted the job's first row at the same moment
+            return false;
+        }
+    }
+
+    private void release(String job, LocalDateTime acquiredAt) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime earliest = acquiredAt.plus(minHold);
+        LocalDateTime until = now.isAfter(earliest) ? now : earliest;
+        try {
+            requiresNew.executeWithoutResult(status -> lockRepository.release(job, nodeId, until));
+        } catch (RuntimeException e) {
+            logger.warn("Could not release lock of job {} (it expires after max-hold): {}", job, e.getMessage());
+        }
+    }
+}
@@ -1,15 +1,20 @@
 package com.ntmi.support.service;
 
+import com.ntmi.support.cache.AnalyticsCache;
+import com.ntmi.support.dto.ReliabilityDTO;
 import com.ntmi.support.model.*;
 import com.ntmi.support.repository.*;
+import com.ntmi.support.service.analytics.BucketGranularity;
+import com.ntmi.support.service.analytics.QuantileSketch;
+import com.ntmi.support.service.analytics.TimeBucketer;
+import com.ntmi.support.service.analytics.TimeRange;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.Duration;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -20,33 +25,41 @@ public class AnalyticsService {
     @Autowired private TicketRepository ticketRepository;
     @Autowired private RepairRecordRepository repairRecordRepository;
     @Autowired private AssetRepository assetRepository;
+    @Autowired private AnalyticsCache analyticsCache;
+    @Autowired private MttrSketchService mttrSketchService;
+    @Autowired private ErrorCategoryRepository categoryRepository;
+    @Autowired private RepairCostLedgerRepository costLedgerRepository;
+    @Autowired private AssetService assetService;
+    @Autowired private WarrantyAlertService warrantyAlertService;
 
-    // --- Helper: Parse Date Range ---
-    private LocalDateTime getStartDate(String range) {
-        LocalDateTime now = LocalDateTime.now();
-        if ("1M".equals(range)) return now.minusMonths(1);
-        if ("3M".equals(range)) return now.minusMonths(3);
-        if ("1Y".equals(range)) return now.minusYears(1);
-        return now.minusMonths(6); // Default 6M
+    // Analytics views are read far more often than tickets change; writes evict via events
+    @Value("${analytics.cache.analytics-ttl:10m}")
+    private Duration cacheTtl;
+
+    // --- Helper: Cache key (identical parameters share one cached result) ---
+    private String key(String view, Long branchId, String range) {
+        return "analytics:" + view + ":" + (branchId == null ? "ALL" : branchId) + ":" + range;
+    }
+
+    // --- Helper: Tickets created inside the range ---
+    private List<Ticket> findTickets(Long branchId, TimeRange range) {
+        return (branchId == null)
+            ? ticketRepository.findByCreatedAtGreaterThanEqualAndCreatedAtLessThan(range.startDateTime(), range.endDateTimeExclusive())
+            : ticketRepository.findByBranch_BranchIdAndCreatedAtGreaterThanEqualAndCreatedAtLessThan(branchId, range.startDateTime(), range.endDateTimeExclusive());
     }
 
     // 1. KPI Calculation
-    public Map<String, Object> getKpis(Long branchId, String range) {
-        LocalDateTime startDate = getStartDate(range);
-        
+    public Map<String, Object> getKpis(Long branchId, TimeRange range) {
+        return analyticsCache.get(key("kpi", branchId, range.key()), branchId, cacheTtl, () -> computeKpis(branchId, range));
+    }
+
+    private Map<String, Object> computeKpis(Long branchId, TimeRange range) {
         // Fetch Tickets
-        List<Ticket> tickets = (branchId == null) 
-            ? ticketRepository.findByCreatedAtAfter(startDate)
-            : ticketRepository.findByBranch_BranchIdAndCreatedAtAfter(branchId, startDate);
-
-        // Fetch Repairs (for Cost)
-        List<RepairRecord> repairs = (branchId == null)
-            ? repairRecordRepository.findByRepairDateAfter(startDate.toLocalDate())
-            : repairRecordRepository.findByAsset_Branch_BranchIdAndRepairDateAfter(branchId, startDate.toLocalDate());
-
-        // A. Total Spend
-        BigDecimal totalSpend = repairs.stream()
-                .map(RepairRecord::getCost)
+        List<Ticket> tickets = findTickets(branchId, range);
+
+        // A. Total Spend (summed in SQL per day, no repair entities loaded)
+        BigDecimal totalSpend = repairRecordRepository.sumCostsByDay(branchId, range.getFrom(), range.getTo()).stream()
+                .map(row -> (BigDecimal) row[1])
                 .filter(Objects::nonNull)
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
 
@@ -61,7 +74,7 @@ public class AnalyticsService {
         // C. MTBF (Mean Time Between Failures)
         // Simplified Formula: (Total Active Assets * Days in Period * 24) / Total Failures
         long totalAssets = (branchId == null) ? assetRepository.count() : assetRepository.countByBranch_BranchId(branchId);
-        long daysInPeriod = ChronoUnit.DAYS.between(startDate, LocalDateTime.now());
+        long daysInPeriod = range.lengthInDays();
         long failureCount = tickets.size();
         
         // Avoid division by zero
@@ -71,90 +84,169 @@ public class AnalyticsService {
         response.put("totalSpend", totalSpend);
         response.put("avgMttr", Math.round(avgMttrDays * 10.0) / 10.0); // Round to 1 decimal
         response.put("mtbf", Math.round(mtbf));
+
+        // D. MTTR Percentiles (hours) from the daily sketches - robust to a few very long tickets
+        QuantileSketch mttr = mttrSketchService.mergedSketch(branchId, null, range);
+        response.put("mttrP50Hours", round1(mttr.quantile(0.50)));
+        response.put("mttrP90Hours", round1(mttr.quantile(0.90)));
+        response.put("mttrP99Hours", round1(mttr.quantile(0.99)));
+        return response;
+    }
+
+    // 1b. MTTR Percentiles (overall + per category), merged from daily sketches
+    public Map<String, Object> getMttrPercentiles(Long branchId, TimeRange range) {
+        return analyticsCache.get(key("mttr", branchId, range.key()), branchId, cacheTtl, () -> computeMttrPercentiles(branchId, range));
+    }
+
+    private Map<String, Object> computeMttrPercentiles(Long branchId, TimeRange range) {
+        Map<Long, QuantileSketch> byCategory = mttrSketchService.sketchesByCategory(branchId, range);
+
+        Map<Long, String> categoryNames = new HashMap<>();
+        categoryRepository.findAll().forEach(c -> categoryNames.put(c.getCategoryId(), c.getCategoryName()));
+
+        QuantileSketch overall = new QuantileSketch();
+        List<Map<String, Object>> categories = new ArrayList<>();
+        byCategory.forEach((categoryId, sketch) -> {
+            overall.merge(sketch);
+            Map<String, Object> entry = percentiles(sketch);
+            entry.put("categoryId", categoryId);
+            entry.put("categoryName", categoryId == null ? "Uncategorised" : categoryNames.getOrDefault(categoryId, "Unknown"));
+            categories.add(entry);
+        });
+        categories.sort((a, b) -> Double.compare((Double) b.get("p90Hours"), (Double) a.get("p90Hours")));
+
+        Map<String, Object> response = percentiles(overall);
+        response.put("byCategory", categories);
         return response;
     }
 
-    // 2. Reliability (Failure Rates)
-    public List<Map<String, Object>> getReliabilityAnalysis(Long branchId, String range) {
-        LocalDateTime startDate = getStartDate(range);
-        List<Ticket> tickets = (branchId == null) 
-            ? ticketRepository.findByCreatedAtAfter(startDate)
-            : ticketRepository.findByBranch_BranchIdAndCreatedAtAfter(branchId, startDate);
+    private Map<String, Object> percentiles(QuantileSketch sketch) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("resolvedCount", sketch.getCount());
+        map.put("meanHours", round1(sketch.getMean()));
+        map.put("p50Hours", round1(sketch.quantile(0.50)));
+        map.put("p90Hours", round1(sketch.quantile(0.90)));
+        map.put("p99Hours", round1(sketch.quantile(0.99)));
+        map.put("maxHours", round1(sketch.getMax()));
+        return map;
+    }
 
-        // Group tickets by Asset Model
-        Map<String, Long> failuresByModel = tickets.stream()
-                .filter(t -> t.getAsset() != null)
-                .collect(Collectors.groupingBy(t -> t.getAsset().getModel(), Collectors.counting()));
+    private double round1(double value) {
+        return Math.round(value * 10.0) / 10.0;
+    }
 
+    // 2. Reliability (failures normalized by installed units, MTBF per model)
+    // One grouped query, cached in AssetService (shared with the Reliability Dashboard)
+    public List<Map<String, Object>> getReliabilityAnalysis(Long branchId, TimeRange range) {
         List<Map<String, Object>> result = new ArrayList<>();
-        failuresByModel.forEach((model, count) -> {
-            // In a real app, divide by total assets of that model to get %
+        for (ReliabilityDTO dto : assetService.getReliabilityStats(branchId, range)) {
             Map<String, Object> entry = new HashMap<>();
-            entry.put("modelName", model);
-            entry.put("failureRate", count); // Currently raw count, can normalize to % if needed
+            entry.put("modelName", dto.getModelName());
+            entry.put("units", dto.getTotalUnits());
+            entry.put("failures", dto.getTotalFailures());
+            entry.put("failureRate", dto.getFailureRate()); // % of units
+            entry.put("failuresPerUnit", dto.getFailuresPerUnit());
+            entry.put("mtbfHours", dto.getMtbfHours());
             result.add(entry);
-        });
-        
-        // Sort by highest failures
-        result.sort((a, b) -> Long.compare((Long)b.get("failureRate"), (Long)a.get("failureRate")));
+        }
         return result;
     }
 
-    // 3. Cost Trends
-    public List<Map<String, Object>> getCostTrends(Long branchId, String range) {
-        LocalDate startDate = getStartDate(range).toLocalDate();
-        List<RepairRecord> repairs = (branchId == null)
-            ? repairRecordRepository.findByRepairDateAfter(startDate)
-            : repairRecordRepository.findByAsset_Branch_BranchIdAndRepairDateAfter(branchId, startDate);
-
-        // Group by Month (YYYY-MM)
-        Map<String, BigDecimal> costByMonth = new TreeMap<>();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM yyyy");
+    // 3. Cost Trends (default: monthly buckets, empty buckets included)
+    public List<Map<String, Object>> getCostTrends(Long branchId, TimeRange range, BucketGranularity granularity) {
+        return analyticsCache.get(key("costs:" + granularity, branchId, range.key()), branchId, cacheTtl,
+                () -> computeCostTrends(branchId, range, granularity));
+    }
 
-        for (RepairRecord r : repairs) {
-            String monthKey = r.getRepairDate().format(formatter);
-            costByMonth.put(monthKey, costByMonth.getOrDefault(monthKey, BigDecimal.ZERO).add(r.getCost() != null ? r.getCost() : BigDecimal.ZERO));
+    private List<Map<String, Object>> computeCostTrends(Long branchId, TimeRange range, BucketGranularity granularity) {
+        // Every granularity counts exactly the repair days inside the range, same as the KPI totalSpend.
+        // Monthly/quarterly charts read the pre-aggregated ledger for the months fully inside the
+        // range and the grouped day query for a partial first/last month; daily/weekly charts use
+        // the day query only. Either way, one pass folds the rows into buckets.
+        List<Object[]> rows;
+        if (granularity == BucketGranularity.MONTH || granularity == BucketGranularity.QUARTER) {
+            rows = sumCostsByMonth(branchId, range);
+        } else {
+            rows = repairRecordRepository.sumCostsByDay(branchId, range.getFrom(), range.getTo());
         }
 
-        return costByMonth.entrySet().stream().map(e -> {
-            Map<String, Object> map = new HashMap<>();
-            map.put("month", e.getKey());
-            map.put("totalCost", e.getValue());
+        List<TimeBucketer.Bucket> buckets = TimeBucketer.aggregate(range, granularity, rows,
+                row -> (LocalDate) row[0],
+                row -> (BigDecimal) row[1],
+                row -> ((Number) row[2]).longValue());
+
+        return buckets.stream().map(b -> {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("month", b.getLabel()); // Kept for existing charts (label of the bucket)
+            map.put("label", b.getLabel());
+            map.put("bucketStart", b.getStart().toString());
+            map.put("bucketEnd", b.getEnd().toString());
+            map.put("totalCost", b.getTotal());
+            map.put("repairCount", b.getCount());
             return map;
         }).collect(Collectors.toList());
     }
 
-    // 4. Warranty Risk
+    private List<Object[]> sumCostsByMonth(Long branchId, TimeRange range) {
+        LocalDate from = range.getFrom();
+        LocalDate to = range.getTo();
+        LocalDate firstFull = (from.getDayOfMonth() == 1) ? from : from.withDayOfMonth(1).plusMonths(1);
+        LocalDate afterLastFull = to.plusDays(1).withDayOfMonth(1); // 1st of the month after the last whole month
+
+        if (!firstFull.isBefore(afterLastFull)) {
+            return repairRecordRepository.sumCostsByDay(branchId, from, to);
+        }
+        List<Object[]> rows = new ArrayList<>();
+        if (from.isBefore(firstFull)) {
+            rows.addAll(repairRecordRepository.sumCostsByDay(branchId, from, firstFull.minusDays(1)));
+        }
+        rows.addAll(costLedgerRepository.sumByMonth(branchId, firstFull, afterLastFull.minusMonths(1)));
+        if (!afterLastFull.isAfter(to)) {
+            rows.addAll(repairRecordRepository.sumCostsByDay(branchId, afterLastFull, to));
+        }
+        return rows;
+    }
+
+    // 3b. Branch Cost Report (branch x month, from the ledger)
+    // Rows are calendar months, so every month the range touches is reported whole
+    public List<Map<String, Object>> getBranchMonthlyCosts(TimeRange range) {
+        return analyticsCache.get(key("branch-costs", null, range.key()), null, cacheTtl, () ->
+            costLedgerRepository.findMonthlyCostsByBranch(range.getFrom().withDayOfMonth(1), range.getTo()).stream().map(row -> {
+                Map<String, Object> map = new LinkedHashMap<>();
+                map.put("branch", row[0]);
+                map.put("month", ((LocalDate) row[1]).toString().substring(0, 7)); // yyyy-MM
+                map.put("totalCost", row[2]);
+                map.put("repairCount", row[3]);
+                return map;
+            }).collect(Collectors.toList()));
+    }
+
+    // 4. Warranty Risk (precomputed watchlist, refreshed by WarrantyAlertService)
     public List<Map<String, Object>> getWarrantyRisks(Long branchId) {
-        // Find assets expiring in next 30 days OR already expired
-        LocalDate threshold = LocalDate.now().plusDays(30);
-        List<Asset> assets = (branchId == null)
-                ? assetRepository.findByWarrantyExpiryBefore(threshold)
-                : assetRepository.findByBranch_BranchIdAndWarrantyExpiryBefore(branchId, threshold);
-
-        return assets.stream()
-                .filter(a -> "REPAIR".equals(a.getStatus()) || "DISPOSED".equals(a.getStatus())) // Critical Status only
-                .map(a -> {
+        LocalDate today = LocalDate.now();
+        return warrantyAlertService.getWatchlist(branchId).stream()
+                .map(w -> {
                     Map<String, Object> map = new HashMap<>();
-                    map.put("assetId", a.getAssetId());
-                    map.put("assetCode", a.getAssetCode());
-                    map.put("brand", a.getBrand());
-                    map.put("model", a.getModel());
-                    map.put("branchName", a.getBranch().getBranchName());
-                    map.put("status", a.getStatus());
-                    map.put("warrantyExpiry", a.getWarrantyExpiry().toString());
-                    map.put("daysLeft", ChronoUnit.DAYS.between(LocalDate.now(), a.getWarrantyExpiry()));
+                    map.put("assetId", w.getAssetId());
+                    map.put("assetCode", w.getAssetCode());
+                    map.put("brand", w.getBrand());
+                    map.put("model", w.getModel());
+                    map.put("branchName", w.getBranchName());
+                    map.put("status", w.getStatus());
+                    map.put("warrantyExpiry", w.getWarrantyExpiry().toString());
+                    map.put("daysLeft", ChronoUnit.DAYS.between(today, w.getWarrantyExpiry()));
                     return map;
                 })
                 .collect(Collectors.toList());
     }
 
     // 5. Failure Distribution (Pie Chart)
-    public List<Map<String, Object>> getFailureDistribution(Long branchId, String range) {
-        LocalDateTime startDate = getStartDate(range);
-        List<Ticket> tickets = (branchId == null) 
-            ? ticketRepository.findByCreatedAtAfter(startDate)
-            : ticketRepository.findByBranch_BranchIdAndCreatedAtAfter(branchId, startDate);
+    public List<Map<String, Object>> getFailureDistribution(Long branchId, TimeRange range) {
+        return analyticsCache.get(key("failures", branchId, range.key()), branchId, cacheTtl, () -> computeFailureDistribution(branchId, range));
+    }
+
+    private List<Map<String, Object>> computeFailureDistribution(Long branchId, TimeRange range) {
+        List<Ticket> tickets = findTickets(branchId, range);
 
         Map<String, Long> countByCategory = tickets.stream()
                 .filter(t -> t.getErrorCategory() != null)
@@ -0,0 +1,228 @@
+package com.ntmi.support.service;
+
+import com.ntmi.support.dto.AssetHealthDTO;
+import com.ntmi.support.repository.AssetHealthScoreRepository;
+import com.ntmi.support.scheduler.ClusterJobLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Nightly replacement-risk scoring for the whole fleet.
+ * <p>
+ * Assets are read in keyset chunks (asset_id &gt; last ORDER BY asset_id), each a short
+ * statement outside any long transaction, so no lock on assets/tickets is held for the run.
+ * A chunk is scored on a ForkJoinPool while the next chunk is being read, and the scores are
+ * written with JDBC batches into asset_health_scores, one small transaction per chunk.
+ * Rows for assets that no longer qualify (deleted / disposed) are dropped at the end.
+ */
+@Service
+public class AssetHealthService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AssetHealthService.class);
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    // --- Scoring model: each factor is normalised to 0..1, then weighted to 0..100 ---
+    private static final double W_REPAIRS = 20, W_RECENT = 35, W_COST = 30, W_WARRANTY = 15;
+    private static final int REPAIRS_CAP = 10;          // 10+ lifetime repairs = max
+    private static final int RECENT_CAP = 4;            // 4+ tickets in the recent window = max
+    private static final double COST_RATIO_CAP = 0.5;   // repairs at 50% of purchase cost = max
+    private static final int WARRANTY_HORIZON_DAYS = 180;
+
+    // Keyset read: one chunk of assets with their repair aggregates and recent ticket count.
+    // The correlated count is an index seek on idx_tickets_asset_created.
+    private static final String READ_SQL =
+            "SELECT a.asset_id, a.branch_id, a.purchase_cost, a.warranty_expiry, a.repair_count, a.total_repair_cost, " +
+            "(SELECT COUNT(*) FROM tickets t WHERE t.asset_id = a.asset_id AND t.created_at >= ?) AS recent_failures " +
+            "FROM assets a WHERE a.asset_id > ? AND a.status <> 'DISPOSED' " +
+            "ORDER BY a.asset_id OFFSET 0 ROWS FETCH NEXT ? ROWS ONLY";
+
+    private static final String DELETE_RANGE_SQL =
+            "DELETE FROM asset_health_scores WHERE asset_id BETWEEN ? AND ?";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO asset_health_scores (asset_id, branch_id, score, repair_count, recent_failures, " +
+            "cost_ratio, warranty_days_left, scored_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int[] INSERT_TYPES = {
+            Types.BIGINT, Types.BIGINT, Types.DOUBLE, Types.INTEGER, Types.INTEGER,
+            Types.DOUBLE, Types.INTEGER, Types.TIMESTAMP };
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private TransactionTemplate transactionTemplate;
+    @Autowired private AssetHealthScoreRepository healthScoreRepository;
+    @Autowired private ClusterJobLock jobLock;
+
+    @Value("${assets.health.chunk-size:2000}")
+    private int chunkSize;
+
+    @Value("${assets.health.parallelism:0}")
+    private int parallelism;
+
+    @Value("${assets.health.recent-window-days:90}")
+    private int recentWindowDays;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    // --- 1. Ranked read ---
+
+    public Page<AssetHealthDTO> getRanking(Long branchId, int page, int size) {
+        return healthScoreRepository.findRanked(branchId,
+                PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE)));
+    }
+
+    // --- 2. Batch job ---
+
+    @Scheduled(cron = "${assets.health.cron:0 0 3 * * *}")
+    public void scheduledRun() {
+        jobLock.runExclusively("asset-health", () -> {
+            try {
+                scoreAll();
+            } catch (IllegalStateException e) {
+                logger.warn("Skipped nightly health scoring: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Scores every non-disposed asset.
+     *
+     * @throws IllegalStateException if a run is already in progress
+     */
+    public Map<String, Object> scoreAll() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Health scoring is already running");
+        }
+        long started = System.currentTimeMillis();
+        LocalDateTime runAt = LocalDateTime.now().withNano(0);
+        LocalDate today = runAt.toLocalDate();
+        Timestamp recentFrom = Timestamp.valueOf(runAt.minusDays(recentWindowDays));
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        int scored = 0;
+        int chunks = 0;
+        try {
+            ForkJoinTask<List<Object[]>> pending = null;
+            long lastId = 0;
+
+            while (true) {
+                // 1. Read the next chunk (overlaps with scoring of the previous one)
+                List<HealthInput> chunk = readChunk(recentFrom, lastId);
+
+                // 2. Write the previous chunk's scores
+                if (pending != null) {
+                    scored += writeChunk(pending.get());
+                }
+                if (chunk.isEmpty()) break;
+
+                lastId = chunk.get(chunk.size() - 1).assetId;
+                chunks++;
+
+                // 3. Score this chunk in parallel
+                pending = pool.submit(() -> chunk.parallelStream().map(in -> toRow(in, today, runAt)).toList());
+            }
+
+            // 4. Drop rows for assets that were deleted or disposed since the last run
+            int stale = jdbcTemplate.update("DELETE FROM asset_health_scores WHERE scored_at < ?", Timestamp.valueOf(runAt));
+
+            long durationMs = System.currentTimeMillis() - started;
+            logger.info("Scored {} assets in {} chunks ({} stale rows removed) in {} ms", scored, chunks, stale, durationMs);
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("assetsScored", scored);
+            result.put("chunks", chunks);
+            result.put("staleRemoved", stale);
+            result.put("durationMs", durationMs);
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Health scoring interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Health scoring failed", e.getCause());
+        } finally {
+            pool.shutdown();
+            running.set(false);
+        }
+    }
+
+    // --- Internals ---
+
+    private List<HealthInput> readChunk(Timestamp recentFrom, long afterId) {
+        return jdbcTemplate.query(READ_SQL, (rs, i) -> {
+            HealthInput in = new HealthInput();
+            in.assetId = rs.getLong("asset_id");
+            in.branchId = rs.getObject("branch_id", Long.class);
+            in.purchaseCost = rs.getObject("purchase_cost", Double.class);
+            Date expiry = rs.getDate("warranty_expiry");
+            in.warrantyExpiry = expiry != null ? expiry.toLocalDate() : null;
+            in.repairCount = rs.getInt("repair_count");
+            in.totalRepairCost = rs.getDouble("total_repair_cost");
+            in.recentFailures = rs.getInt("recent_failures");
+            return in;
+        }, recentFrom, afterId, chunkSize);
+    }
+
+    // Replaces the chunk's id range in one short transaction
+    private int writeChunk(List<Object[]> rows) {
+        if (rows.isEmpty()) return 0;
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update(DELETE_RANGE_SQL, rows.get(0)[0], rows.get(rows.size() - 1)[0]);
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows, INSERT_TYPES);
+        });
+        return rows.size();
+    }
+
+    // Row values in INSERT_SQL column order
+    private Object[] toRow(HealthInput in, LocalDate today, LocalDateTime runAt) {
+        Double costRatio = in.purchaseCost != null && in.purchaseCost > 0 ? in.totalRepairCost / in.purchaseCost : null;
+        Integer warrantyDaysLeft = in.warrantyExpiry != null ? (int) ChronoUnit.DAYS.between(today, in.warrantyExpiry) : null;
+        double score = score(in.repairCount, in.recentFailures, costRatio, warrantyDaysLeft);
+        return new Object[] { in.assetId, in.branchId, score, in.repairCount, in.recentFailures,
+                costRatio, warrantyDaysLeft, Timestamp.valueOf(runAt) };
+    }
+
+    static double score(int repairCount, int recentFailures, Double costRatio, Integer warrantyDaysLeft) {
+        double repairs = Math.min(repairCount / (double) REPAIRS_CAP, 1);
+        double recent = Math.min(recentFailures / (double) RECENT_CAP, 1);
+        double cost = costRatio != null ? Math.min(costRatio / COST_RATIO_CAP, 1) : 0;
+        double warranty;
+        if (warrantyDaysLeft == null) warranty = 0.5;            // unknown: middle risk
+        else if (warrantyDaysLeft <= 0) warranty = 1;             // expired
+        else warranty = Math.max(0, 1 - warrantyDaysLeft / (double) WARRANTY_HORIZON_DAYS);
+
+        double total = W_REPAIRS * repairs + W_RECENT * recent + W_COST * cost + W_WARRANTY * warranty;
+        return Math.round(total * 10) / 10.0;
+    }
+
+    private static class HealthInput {
+        long assetId;
+        Long branchId;
+        Double purchaseCost;
+        LocalDate warrantyExpiry;
+        int repairCount;
+        double totalRepairCost;
+        int recentFailures;
+    }
+}
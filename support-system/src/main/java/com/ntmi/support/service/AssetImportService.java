@@ -0,0 +1,446 @@
+package com.ntmi.support.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ntmi.support.cache.AssetLookupIndex;
+import com.ntmi.support.dto.AssetImportResult;
+import com.ntmi.support.event.BranchDataChangedEvent;
+import com.ntmi.support.model.AssetStatus;
+import com.ntmi.support.model.Branch;
+import com.ntmi.support.repository.AssetRepository;
+import com.ntmi.support.repository.BranchRepository;
+import com.ntmi.support.service.imports.CsvReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Bulk asset import from CSV (header row required), NDJSON (one JSON object per line) or a
+ * JSON array of objects (.json).
+ * <p>
+ * The file is streamed row by row. Existing asset codes and branches are loaded once up
+ * front, so validation is in-memory, and valid rows are inserted with JDBC batches.
+ * A bad row is reported (line + reason) and skipped; it never aborts the import. A file that
+ * cannot be read to the end (e.g. an unterminated quoted field) is reported the same way and
+ * keeps the rows before it. Each asset gets its initial status history row in the same batch.
+ * <p>
+ * Recognised fields (case and separators ignored): assetCode, serialNumber, brand, model,
+ * deviceType, status, purchaseDate, warrantyExpiry (yyyy-MM-dd), purchaseCost, and
+ * branchId or branchCode (falls back to the branchId request parameter).
+ */
+@Service
+public class AssetImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AssetImportService.class);
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO assets (asset_code, serial_number, brand, model, device_type, status, " +
+            "purchase_date, warranty_expiry, purchase_cost, branch_id, repair_count, total_repair_cost) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, 0)";
+
+    private static final int[] INSERT_TYPES = {
+            Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+            Types.DATE, Types.DATE, Types.DOUBLE, Types.BIGINT };
+
+    // Initial status history row ("Registered as ..."), same as AssetStatusService writes for a single create
+    private static final String HISTORY_SQL =
+            "INSERT INTO asset_status_changes (asset_id, old_status, new_status, changed_at, changed_by) " +
+            "SELECT asset_id, NULL, status, ?, ? FROM assets WHERE asset_code = ?";
+
+    private static final int[] HISTORY_TYPES = { Types.TIMESTAMP, Types.VARCHAR, Types.VARCHAR };
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private TransactionTemplate transactionTemplate;
+    @Autowired private AssetRepository assetRepository;
+    @Autowired private BranchRepository branchRepository;
+    @Autowired private ObjectMapper objectMapper;
+    @Autowired private AssetLookupIndex assetLookupIndex;
+    @Autowired private AssetStatusCounters assetStatusCounters;
+    @Autowired private ApplicationEventPublisher eventPublisher;
+
+    public AssetImportResult importAssets(MultipartFile file, Long defaultBranchId) {
+        long started = System.currentTimeMillis();
+        ImportContext ctx = new ImportContext(defaultBranchId);
+
+        // 1. Preload lookups (one query each, instead of per-row existsByAssetCode / findById)
+        for (String code : assetRepository.findAllAssetCodes()) {
+            ctx.knownCodes.add(normalizeCode(code));
+        }
+        for (Branch b : branchRepository.findAll()) {
+            ctx.branchIds.add(b.getBranchId());
+            if (b.getBranchCode() != null) ctx.branchIdsByCode.put(normalizeCode(b.getBranchCode()), b.getBranchId());
+        }
+        if (defaultBranchId != null && !ctx.branchIds.contains(defaultBranchId)) {
+            throw new IllegalArgumentException("Branch not found: " + defaultBranchId);
+        }
+
+        // 2. Stream rows -> validate -> batch insert
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+            if (isNdjson(file)) {
+                if (startsWithArray(reader)) {
+                    readJsonArray(reader, ctx);
+                } else {
+                    readNdjson(reader, ctx);
+                }
+            } else {
+                readCsv(reader, ctx);
+            }
+        } catch (IOException e) {
+            streamError(ctx, 0, e);
+        } finally {
+            // Earlier batches are already committed: the pending rows and the derived state must follow
+            flush(ctx);
+
+            // 3. Refresh derived state
+            if (ctx.result.getImported() > 0) {
+                assetLookupIndex.reload();
+                ctx.added.forEach((branchId, byStatus) ->
+                        byStatus.forEach((status, n) -> assetStatusCounters.assetsAdded(branchId, status, n)));
+                ctx.touchedBranches.forEach(id -> eventPublisher.publishEvent(new BranchDataChangedEvent(id, "ASSET")));
+            }
+        }
+
+        AssetImportResult result = ctx.result;
+        result.setDurationMs(System.currentTimeMillis() - started);
+        logger.info("Asset import '{}': {} rows, {} imported, {} failed in {} ms",
+                file.getOriginalFilename(), result.getTotalRows(), result.getImported(), result.getFailed(), result.getDurationMs());
+        return result;
+    }
+
+    // --- Readers ---
+
+    private void readCsv(BufferedReader reader, ImportContext ctx) {
+        CsvReader csv = new CsvReader(reader);
+        List<String> header;
+        try {
+            header = csv.next();
+        } catch (IOException e) {
+            streamError(ctx, csv.getRecordLine(), e);
+            return;
+        }
+        if (header == null) return;
+
+        List<String> keys = new ArrayList<>();
+        for (String h : header) keys.add(normalizeKey(h));
+        if (!keys.contains("assetcode")) {
+            throw new IllegalArgumentException("CSV header must contain an assetCode column");
+        }
+
+        while (true) {
+            List<String> values;
+            try {
+                values = csv.next();
+            } catch (IOException e) {
+                streamError(ctx, csv.getRecordLine(), e);
+                return;
+            }
+            if (values == null) return;
+
+            Map<String, String> fields = new HashMap<>();
+            for (int i = 0; i < keys.size() && i < values.size(); i++) {
+                fields.put(keys.get(i), values.get(i));
+            }
+            handleRow(csv.getRecordLine(), fields, ctx);
+        }
+    }
+
+    private void readNdjson(BufferedReader reader, ImportContext ctx) {
+        long lineNumber = 0;
+        while (true) {
+            String line;
+            try {
+                line = reader.readLine();
+            } catch (IOException e) {
+                streamError(ctx, lineNumber + 1, e);
+                return;
+            }
+            if (line == null) return;
+            lineNumber++;
+            if (line.isBlank()) continue;
+
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(line);
+            } catch (IOException e) {
+                ctx.result.setTotalRows(ctx.result.getTotalRows() + 1);
+                ctx.result.addError(lineNumber, null, "Invalid JSON");
+                continue;
+            }
+            handleRow(lineNumber, toFields(node), ctx);
+        }
+    }
+
+    // A .json file holding one array of objects, streamed element by element
+    private void readJsonArray(BufferedReader reader, ImportContext ctx) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(reader)) {
+            parser.nextToken(); // START_ARRAY
+            while (true) {
+                JsonToken token;
+                long lineNumber = parser.currentLocation().getLineNr();
+                try {
+                    token = parser.nextToken();
+                    if (token == null || token == JsonToken.END_ARRAY) return;
+                    lineNumber = parser.currentLocation().getLineNr();
+                    JsonNode node = objectMapper.readTree(parser);
+                    handleRow(lineNumber, toFields(node), ctx);
+                } catch (JsonProcessingException e) {
+                    // The rest of the file cannot be located reliably: stop here, keep what was imported
+                    ctx.result.setTotalRows(ctx.result.getTotalRows() + 1);
+                    ctx.result.addError(lineNumber, null, "Invalid JSON, rest of file skipped");
+                    return;
+                } catch (IOException e) {
+                    streamError(ctx, lineNumber, e);
+                    return;
+                }
+            }
+        }
+    }
+
+    private Map<String, String> toFields(JsonNode node) {
+        Map<String, String> fields = new HashMap<>();
+        if (node != null && node.isObject()) {
+            for (Map.Entry<String, JsonNode> e : node.properties()) {
+                JsonNode v = e.getValue();
+                fields.put(normalizeKey(e.getKey()), v == null || v.isNull() ? null : v.asText());
+            }
+        }
+        return fields;
+    }
+
+    // The file could not be read past this point: report it like a failed row, keep what was imported
+    private void streamError(ImportContext ctx, long line, IOException e) {
+        logger.warn("Asset import stopped at line {}: {}", line, e.getMessage());
+        ctx.result.setTotalRows(ctx.result.getTotalRows() + 1);
+        ctx.result.addError(line, null, "Could not read file (" + e.getMessage() + "), rest of file skipped");
+    }
+
+    // Peeks at the first non-blank character (a JSON array starts with '['); the reader is reset
+    private boolean startsWithArray(BufferedReader reader) throws IOException {
+        reader.mark(4096);
+        int c;
+        int read = 0;
+        do {
+            c = reader.read();
+            read++;
+        } while (c != -1 && read < 4096 && (Character.isWhitespace(c) || c == '\uFEFF'));
+        reader.reset();
+        return c == '[';
+    }
+
+    // --- Row handling ---
+
+    private void handleRow(long line, Map<String, String> fields, ImportContext ctx) {
+        ctx.result.setTotalRows(ctx.result.getTotalRows() + 1);
+        String code = trimToNull(fields.get("assetcode"));
+        try {
+            PendingRow row = parse(line, code, fields, ctx);
+            ctx.knownCodes.add(normalizeCode(code)); // also catches duplicates within the file
+            ctx.batch.add(row);
+            if (ctx.batch.size() >= BATCH_SIZE) flush(ctx);
+        } catch (IllegalArgumentException e) {
+            ctx.result.addError(line, code, e.getMessage());
+        }
+    }
+
+    private PendingRow parse(long line, String code, Map<String, String> f, ImportContext ctx) {
+        if (code == null) throw new IllegalArgumentException("assetCode is required");
+        if (ctx.knownCodes.contains(normalizeCode(code))) throw new IllegalArgumentException("Duplicate assetCode");
+
+        Long branchId = resolveBranch(f, ctx);
+
+        AssetStatus status = parseStatus(f.get("status"));
+
+        LocalDate purchased = parseDate(f.containsKey("purchasedate") ? f.get("purchasedate") : f.get("purchaseddate"), "purchaseDate");
+        LocalDate warranty = parseDate(f.get("warrantyexpiry"), "warrantyExpiry");
+        Double cost = parseCost(f.get("purchasecost"));
+
+        Object[] params = {
+                code, trimToNull(f.get("serialnumber")), trimToNull(f.get("brand")), trimToNull(f.get("model")),
+                trimToNull(f.get("devicetype")), status.name(),
+                purchased != null ? java.sql.Date.valueOf(purchased) : null,
+                warranty != null ? java.sql.Date.valueOf(warranty) : null,
+                cost, branchId };
+        return new PendingRow(line, code, branchId, status, params);
+    }
+
+    private Long resolveBranch(Map<String, String> f, ImportContext ctx) {
+        String id = trimToNull(f.get("branchid"));
+        if (id != null) {
+            try {
+                Long branchId = Long.valueOf(id);
+                if (!ctx.branchIds.contains(branchId)) throw new IllegalArgumentException("Branch not found: " + id);
+                return branchId;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid branchId: " + id);
+            }
+        }
+        String branchCode = trimToNull(f.get("branchcode"));
+        if (branchCode != null) {
+            Long branchId = ctx.branchIdsByCode.get(normalizeCode(branchCode));
+            if (branchId == null) throw new IllegalArgumentException("Branch not found: " + branchCode);
+            return branchId;
+        }
+        if (ctx.defaultBranchId == null) throw new IllegalArgumentException("branchId or branchCode is required");
+        return ctx.defaultBranchId;
+    }
+
+    // --- Batch insert ---
+
+    private void flush(ImportContext ctx) {
+        if (ctx.batch.isEmpty()) return;
+        List<PendingRow> rows = new ArrayList<>(ctx.batch);
+        ctx.batch.clear();
+
+        List<Object[]> params = new ArrayList<>(rows.size());
+        List<Object[]> history = new ArrayList<>(rows.size());
+        for (PendingRow r : rows) {
+            params.add(r.params);
+            history.add(historyParams(r, ctx));
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(INSERT_SQL, params, INSERT_TYPES);
+                jdbcTemplate.batchUpdate(HISTORY_SQL, history, HISTORY_TYPES);
+            });
+            rows.forEach(ctx::inserted);
+        } catch (DataAccessException e) {
+            // The batch rolled back (e.g. a code created concurrently): insert row by row to isolate the bad ones
+            logger.warn("Asset import batch failed, retrying {} rows individually: {}", rows.size(), e.getMostSpecificCause().getMessage());
+            for (PendingRow r : rows) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        jdbcTemplate.update(INSERT_SQL, r.params, INSERT_TYPES);
+                        jdbcTemplate.update(HISTORY_SQL, historyParams(r, ctx), HISTORY_TYPES);
+                    });
+                    ctx.inserted(r);
+                } catch (DataAccessException rowError) {
+                    ctx.result.addError(r.line, r.assetCode, "Insert failed: " + rowError.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+
+    private Object[] historyParams(PendingRow row, ImportContext ctx) {
+        return new Object[] { ctx.importedAt, ctx.importedBy, row.assetCode };
+    }
+
+    // --- Helpers ---
+
+    private boolean isNdjson(MultipartFile file) {
+        String name = file.getOriginalFilename() != null ? file.getOriginalFilename().toLowerCase(Locale.ROOT) : "";
+        String type = file.getContentType() != null ? file.getContentType().toLowerCase(Locale.ROOT) : "";
+        return name.endsWith(".ndjson") || name.endsWith(".jsonl") || name.endsWith(".json")
+                || type.contains("ndjson") || type.contains("jsonl");
+    }
+
+    private AssetStatus parseStatus(String value) {
+        String v = trimToNull(value);
+        if (v == null) return AssetStatus.ACTIVE;
+        try {
+            return AssetStatus.valueOf(v.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown status: " + v);
+        }
+    }
+
+    private LocalDate parseDate(String value, String field) {
+        String v = trimToNull(value);
+        if (v == null) return null;
+        try {
+            return LocalDate.parse(v);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid " + field + " (expected yyyy-MM-dd): " + v);
+        }
+    }
+
+    private Double parseCost(String value) {
+        String v = trimToNull(value);
+        if (v == null) return null;
+        try {
+            return Double.valueOf(v);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid purchaseCost: " + v);
+        }
+    }
+
+    // "Asset Code", "asset_code", a BOM-prefixed "assetCode" -> "assetcode"
+    private static String normalizeKey(String header) {
+        return header == null ? "" : header.replaceAll("[^A-Za-z0-9]", "").toLowerCase(Locale.ROOT);
+    }
+
+    // Codes compare case-insensitively, like the DB collation
+    private static String normalizeCode(String code) {
+        return code.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static String trimToNull(String s) {
+        if (s == null) return null;
+        String t = s.trim();
+        return t.isEmpty() ? null : t;
+    }
+
+    private static class PendingRow {
+        final long line;
+        final String assetCode;
+        final Long branchId;
+        final AssetStatus status;
+        final Object[] params;
+
+        PendingRow(long line, String assetCode, Long branchId, AssetStatus status, Object[] params) {
+            this.line = line;
+            this.assetCode = assetCode;
+            this.branchId = branchId;
+            this.status = status;
+            this.params = params;
+        }
+    }
+
+    private static class ImportContext {
+        final Long defaultBranchId;
+        final AssetImportResult result = new AssetImportResult();
+        final Set<String> knownCodes = new HashSet<>();
+        final Set<Long> branchIds = new HashSet<>();
+        final Map<String, Long> branchIdsByCode = new HashMap<>();
+        final Set<Long> touchedBranches = new HashSet<>();
+        final Map<Long, Map<AssetStatus, Integer>> added = new HashMap<>();
+        final List<PendingRow> batch = new ArrayList<>(BATCH_SIZE);
+        final java.sql.Timestamp importedAt = java.sql.Timestamp.valueOf(LocalDateTime.now());
+        final String importedBy;
+
+        ImportContext(Long defaultBranchId) {
+            this.defaultBranchId = defaultBranchId;
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            this.importedBy = auth != null ? auth.getName() : null;
+        }
+
+        void inserted(PendingRow row) {
+            result.setImported(result.getImported() + 1);
+            touchedBranches.add(row.branchId);
+            added.computeIfAbsent(row.branchId, k -> new EnumMap<>(AssetStatus.class)).merge(row.status, 1, Integer::sum);
+        }
+    }
+}
@@ -1,39 +1,78 @@
 package com.ntmi.support.service;
 
+import com.ntmi.support.cache.AnalyticsCache;
+import com.ntmi.support.dto.AssetSearchCriteria;
 import com.ntmi.support.dto.ReliabilityDTO;
 import com.ntmi.support.model.Asset;
-import com.ntmi.support.model.Ticket;
 import com.ntmi.support.repository.AssetRepository;
-import com.ntmi.support.repository.TicketRepository;
+import com.ntmi.support.repository.AssetSpecifications;
+import com.ntmi.support.service.analytics.TimeRange;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 
 @Service
 public class AssetService {
 
+    public static final int MAX_PAGE_SIZE = 100;
+
+    // Sortable columns (all indexed); anything else falls back to asset code
+    private static final Set<String> SORTABLE = Set.of(
+            "assetCode", "serialNumber", "brand", "model", "status", "deviceType", "warrantyExpiry");
+
+    // Bounds for all-time queries (valid SQL Server datetime2 values)
+    private static final LocalDateTime BEGINNING_OF_TIME = LocalDateTime.of(1900, 1, 1, 0, 0);
+    private static final LocalDateTime END_OF_TIME = LocalDateTime.of(9999, 1, 1, 0, 0);
+
     @Autowired
     private AssetRepository assetRepository;
 
     @Autowired
-    private TicketRepository ticketRepository; // ✅ Required for cost calculation
+    private AnalyticsCache analyticsCache;
+
+    @Value("${analytics.cache.analytics-ttl:10m}")
+    private Duration cacheTtl;
 
     // --- 1. Asset Management (Frontend) ---
 
-    // ✅ Get Assets by Branch (With calculated costs)
+    // ✅ Get Assets by Branch (repair totals are stored on the asset: one query)
     public List<Asset> getAssetsByBranch(Long branchId) {
-        List<Asset> assets = assetRepository.findByBranch_BranchId(branchId);
-        return calculateCostsForAssets(assets);
+        return assetRepository.findByBranch_BranchId(branchId);
     }
 
-    // ✅ Get All Assets (With calculated costs)
+    // ✅ Get All Assets (repair totals are stored on the asset: one query)
     public List<Asset> getAllAssets() {
-        List<Asset> assets = assetRepository.findAll();
-        return calculateCostsForAssets(assets);
+        return assetRepository.findAll();
+    }
+
+    // ✅ Paged search (prefix match on code/serial + filters). Page size is capped.
+    public Page<Asset> searchAssets(AssetSearchCriteria criteria, Pageable pageable) {
+        return assetRepository.findAll(AssetSpecifications.fromCriteria(criteria), boundedPage(pageable));
+    }
+
+    private Pageable boundedPage(Pageable pageable) {
+        int size = Math.min(Math.max(pageable.getPageSize(), 1), MAX_PAGE_SIZE);
+
+        List<Sort.Order> orders = new ArrayList<>();
+        for (Sort.Order order : pageable.getSort()) {
+            if (SORTABLE.contains(order.getProperty())) orders.add(order);
+        }
+        Sort sort = orders.isEmpty() ? Sort.by("assetCode") : Sort.by(orders);
+        // Unique tie-breaker so rows never repeat or vanish between pages
+        if (sort.getOrderFor("assetCode") == null) sort = sort.and(Sort.by("assetCode"));
+
+        return PageRequest.of(pageable.getPageNumber(), size, sort);
     }
 
     // ✅ Create / Update Asset
@@ -41,59 +80,53 @@ public class AssetService {
         return assetRepository.save(asset);
     }
 
-    // ✅ Helper: Calculates Total Repair Cost on the fly
-    private List<Asset> calculateCostsForAssets(List<Asset> assets) {
-        for (Asset asset : assets) {
-            // Find all tickets for this asset
-            List<Ticket> history = ticketRepository.findByAsset_AssetId(asset.getAssetId());
-            
-            // Sum up the repair costs (safely handling nulls)
-            double totalCost = history.stream()
-                .filter(t -> t.getRepairCost() != null)
-                .mapToDouble(Ticket::getRepairCost)
-                .sum();
-            
-            // Set the transient field
-            asset.setTotalRepairCost(totalCost);
-            
-            // Optional: Ensure repair count matches ticket history size
-            // asset.setRepairCount(history.size()); 
-        }
-        return assets;
+    // ✅ Recompute repair_count / total_repair_cost from repair history (repair drift / backfill)
+    @Transactional
+    public int recomputeRepairTotals() {
+        return assetRepository.recomputeRepairTotals(RepairRecordService.DISPOSAL_PREFIX + "%");
     }
 
     // --- 2. Analytics & Reports ---
 
+    // ✅ All-time reliability per model (Reliability Dashboard)
     public List<ReliabilityDTO> getReliabilityStats() {
-        // 1. Get raw data
-        List<Object[]> totalAssets = assetRepository.countTotalAssetsByModel();
-        List<Object[]> totalTickets = assetRepository.countTicketsByModel();
-
-        // 2. Map Ticket Counts for fast lookup
-        Map<String, Long> ticketMap = new HashMap<>();
-        for (Object[] row : totalTickets) {
-            ticketMap.put((String) row[0], (Long) row[1]);
-        }
+        return getReliabilityStats(null, null);
+    }
+
+    /**
+     * Units, failures, failure rate and MTBF per model in one grouped query (cached).
+     *
+     * @param branchId branch filter, or null for all branches
+     * @param range    failure window, or null for all time (MTBF is then not computed)
+     */
+    public List<ReliabilityDTO> getReliabilityStats(Long branchId, TimeRange range) {
+        String key = "reliability:models:" + (branchId == null ? "all" : branchId) + ":" + (range == null ? "ALL" : range.key());
+        return analyticsCache.get(key, branchId, cacheTtl, () -> computeReliabilityStats(branchId, range));
+    }
+
+    private List<ReliabilityDTO> computeReliabilityStats(Long branchId, TimeRange range) {
+        LocalDateTime from = range != null ? range.startDateTime() : BEGINNING_OF_TIME;
+        LocalDateTime to = range != null ? range.endDateTimeExclusive() : END_OF_TIME;
+        double periodHours = range != null ? range.lengthInDays() * 24.0 : 0;
 
-        // 3. Combine and Calculate
         List<ReliabilityDTO> stats = new ArrayList<>();
-        for (Object[] row : totalAssets) {
+        for (Object[] row : assetRepository.findModelReliability(branchId, from, to)) {
             String model = (String) row[0];
-            Long totalUnits = (Long) row[1];
-            Long failures = ticketMap.getOrDefault(model, 0L);
+            long units = (Long) row[1];
+            long failures = (Long) row[2];
 
-            // Calculate Rate (Avoid division by zero)
-            double rate = totalUnits > 0 ? ((double) failures / totalUnits) * 100 : 0.0;
-            
-            // Round to 1 decimal place
-            rate = Math.round(rate * 10.0) / 10.0;
+            double perUnit = units > 0 ? (double) failures / units : 0.0;
+            // Same simplified MTBF as the KPI card: (units x hours in period) / failures
+            Double mtbf = (range != null && failures > 0) ? (double) Math.round(units * periodHours / failures) : null;
 
-            stats.add(new ReliabilityDTO(model, totalUnits, failures, rate));
+            stats.add(new ReliabilityDTO(model, units, failures,
+                    Math.round(perUnit * 1000.0) / 10.0,   // % rounded to 1 decimal
+                    Math.round(perUnit * 100.0) / 100.0,
+                    mtbf));
         }
-        
+
         // Sort by highest failure rate
         stats.sort((a, b) -> Double.compare(b.getFailureRate(), a.getFailureRate()));
-        
         return stats;
     }
-}
\ No newline at end of file
+}
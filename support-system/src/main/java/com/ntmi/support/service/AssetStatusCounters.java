@@ -0,0 +1,277 @@
+package com.ntmi.support.service;
+
+import com.ntmi.support.model.AssetStatus;
+import com.ntmi.support.model.Ticket;
+import com.ntmi.support.model.TicketStatus;
+import com.ntmi.support.repository.AssetRepository;
+import com.ntmi.support.repository.TicketRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live asset counters per branch: assets by status and assets with at least one open
+ * (OPEN / IN_PROGRESS) ticket. Availability is read from these in O(1).
+ * <p>
+ * Updated by the code paths that change an asset or a ticket's open state, after their
+ * transaction commits. A periodic reconcile recounts from the database and replaces the
+ * state, which corrects any drift (e.g. writes made outside the application).
+ */
+@Service
+public class AssetStatusCounters {
+
+    private static final Logger logger = LoggerFactory.getLogger(AssetStatusCounters.class);
+
+    private static final List<TicketStatus> OPEN_STATUSES = List.of(TicketStatus.OPEN, TicketStatus.IN_PROGRESS);
+
+    // Gauge tag for the all-branch totals
+    private static final String ALL = "all";
+
+    @Autowired private AssetRepository assetRepository;
+    @Autowired private TicketRepository ticketRepository;
+
+    private MeterRegistry meterRegistry;
+    private final Set<String> registeredGauges = ConcurrentHashMap.newKeySet();
+
+    private volatile State state = new State();
+
+    @Autowired
+    public void registerMetrics(MeterRegistry registry) {
+        this.meterRegistry = registry;
+        registerGauges(null);
+    }
+
+    // --- 1. Load / reconcile ---
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reconcile();
+    }
+
+    @Scheduled(fixedDelayString = "${assets.counters.reconcile-interval:PT15M}",
+               initialDelayString = "${assets.counters.reconcile-interval:PT15M}")
+    public void scheduledReconcile() {
+        reconcile();
+    }
+
+    public synchronized void reconcile() {
+        State fresh = new State();
+        for (Object[] r : assetRepository.countByBranchAndStatus()) {
+            Long branchId = (Long) r[0];
+            AssetStatus status = (AssetStatus) r[1];
+            long count = (Long) r[2];
+            if (status == null) continue;
+            fresh.branch(branchId).byStatus(status).addAndGet(count);
+            fresh.totals.byStatus(status).addAndGet(count);
+        }
+        for (Object[] r : ticketRepository.countOpenTicketsByAsset(OPEN_STATUSES)) {
+            Long assetId = (Long) r[0];
+            Long branchId = (Long) r[1];
+            fresh.openTicketsByAsset.put(assetId, new OpenTickets(branchId, ((Long) r[2]).intValue()));
+            fresh.branch(branchId).withOpenTickets.incrementAndGet();
+            fresh.totals.withOpenTickets.incrementAndGet();
+        }
+
+        State old = this.state;
+        this.state = fresh;
+        fresh.branches.keySet().forEach(this::registerGauges);
+
+        long drift = Math.abs(old.totals.total() - fresh.totals.total())
+                + Math.abs(old.totals.withOpenTickets.get() - fresh.totals.withOpenTickets.get());
+        if (drift > 0 && old.loaded) {
+            logger.warn("Asset counters reconciled with drift {} (total {} -> {})", drift, old.totals.total(), fresh.totals.total());
+        }
+        fresh.loaded = true;
+    }
+
+    // --- 2. Updates (applied after commit) ---
+
+    public void assetAdded(Long branchId, AssetStatus status) {
+        assetsAdded(branchId, status, 1);
+    }
+
+    public void assetsAdded(Long branchId, AssetStatus status, int count) {
+        afterCommit(() -> adjust(branchId, status, count));
+    }
+
+    public void assetRemoved(Long branchId, AssetStatus status) {
+        afterCommit(() -> adjust(branchId, status, -1));
+    }
+
+    public void assetChanged(Long assetId, Long oldBranchId, AssetStatus oldStatus, Long newBranchId, AssetStatus newStatus) {
+        if (Objects.equals(oldBranchId, newBranchId) && oldStatus == newStatus) return;
+        afterCommit(() -> {
+            adjust(oldBranchId, oldStatus, -1);
+            adjust(newBranchId, newStatus, 1);
+            // Open tickets move with the asset
+            if (!Objects.equals(oldBranchId, newBranchId)) {
+                OpenTickets open = state.openTicketsByAsset.computeIfPresent(assetId, (k, v) -> new OpenTickets(newBranchId, v.count));
+                if (open != null) {
+                    state.branch(oldBranchId).withOpenTickets.decrementAndGet();
+                    state.branch(newBranchId).withOpenTickets.incrementAndGet();
+                    registerGauges(newBranchId);
+                }
+            }
+        });
+    }
+
+    // Call after a ticket is saved; previous = status before the change (null for a new ticket)
+    public void ticketStatusChanged(Ticket ticket, TicketStatus previous) {
+        if (ticket.getAsset() == null || ticket.getAsset().getAssetId() == null) return;
+        boolean wasOpen = isOpen(previous);
+        boolean nowOpen = isOpen(ticket.getStatus());
+        if (wasOpen == nowOpen) return;
+
+        Long assetId = ticket.getAsset().getAssetId();
+        Long branchId = ticket.getAsset().getBranch() != null ? ticket.getAsset().getBranch().getBranchId() : null;
+        afterCommit(() -> openTicketDelta(assetId, branchId, nowOpen ? 1 : -1));
+    }
+
+    // --- 3. Reads (O(1)) ---
+
+    public double availability(Long branchId) {
+        return state.counts(branchId).availability();
+    }
+
+    public Map<String, Object> snapshot(Long branchId) {
+        Counts c = state.counts(branchId);
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("branchId", branchId);
+        for (AssetStatus s : AssetStatus.values()) {
+            map.put(s.name(), c.byStatus(s).get());
+        }
+        map.put("total", c.total());
+        map.put("assetsWithOpenTickets", c.withOpenTickets.get());
+        map.put("availability", Math.round(c.availability() * 10.0) / 10.0);
+        return map;
+    }
+
+    // --- Internals ---
+
+    private void adjust(Long branchId, AssetStatus status, int delta) {
+        if (status == null) return;
+        State s = state;
+        s.branch(branchId).byStatus(status).addAndGet(delta);
+        s.totals.byStatus(status).addAndGet(delta);
+        registerGauges(branchId);
+    }
+
+    private void openTicketDelta(Long assetId, Long branchId, int delta) {
+        State s = state;
+        s.openTicketsByAsset.compute(assetId, (k, v) -> {
+            int before = v == null ? 0 : v.count;
+            int after = Math.max(0, before + delta);
+            Long branch = v != null ? v.branchId : branchId;
+            // The asset's availability only changes when it gains its first / loses its last open ticket
+            if (before == 0 && after > 0) {
+                s.branch(branch).withOpenTickets.incrementAndGet();
+                s.totals.withOpenTickets.incrementAndGet();
+            } else if (before > 0 && after == 0) {
+                s.branch(branch).withOpenTickets.decrementAndGet();
+                s.totals.withOpenTickets.decrementAndGet();
+            }
+            return after == 0 ? null : new OpenTickets(branch, after);
+        });
+    }
+
+    private static boolean isOpen(TicketStatus status) {
+        return status != null && OPEN_STATUSES.contains(status);
+    }
+
+    // Counters must not move for a write that rolls back
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void registerGauges(Long branchId) {
+        String tag = branchId == null ? ALL : String.valueOf(branchId);
+        if (meterRegistry == null || !registeredGauges.add(tag)) return;
+
+        for (AssetStatus status : AssetStatus.values()) {
+            Gauge.builder("assets.status.count", this, c -> c.state.counts(branchId).byStatus(status).get())
+                    .tags("branch", tag, "status", status.name())
+                    .register(meterRegistry);
+        }
+        Gauge.builder("assets.with_open_tickets", this, c -> c.state.counts(branchId).withOpenTickets.get())
+                .tag("branch", tag).register(meterRegistry);
+        Gauge.builder("assets.availability", this, c -> c.availability(branchId))
+                .tag("branch", tag).description("% of assets without an open ticket").register(meterRegistry);
+    }
+
+    private static class Counts {
+        final AtomicLong[] byStatus = new AtomicLong[AssetStatus.values().length];
+        final AtomicLong withOpenTickets = new AtomicLong();
+
+        Counts() {
+            for (int i = 0; i < byStatus.length; i++) byStatus[i] = new AtomicLong();
+        }
+
+        AtomicLong byStatus(AssetStatus status) {
+            return byStatus[status.ordinal()];
+        }
+
+        long total() {
+            long sum = 0;
+            for (AtomicLong c : byStatus) sum += c.get();
+            return sum;
+        }
+
+        // Same definition as the old native query: % of all assets without an open ticket
+        double availability() {
+            long total = total();
+            if (total <= 0) return 100.0;
+            return Math.max(0, total - withOpenTickets.get()) * 100.0 / total;
+        }
+    }
+
+    private static class OpenTickets {
+        final Long branchId;
+        final int count;
+
+        OpenTickets(Long branchId, int count) {
+            this.branchId = branchId;
+            this.count = count;
+        }
+    }
+
+    private static class State {
+        final Map<Long, Counts> branches = new ConcurrentHashMap<>();
+        final Counts totals = new Counts();
+        final Map<Long, OpenTickets> openTicketsByAsset = new ConcurrentHashMap<>();
+        volatile boolean loaded = false;
+
+        Counts branch(Long branchId) {
+            if (branchId == null) return new Counts(); // assets always have a branch; nothing to track
+            return branches.computeIfAbsent(branchId, k -> new Counts());
+        }
+
+        Counts counts(Long branchId) {
+            if (branchId == null) return totals;
+            Counts c = branches.get(branchId);
+            return c != null ? c : EMPTY;
+        }
+    }
+
+    private static final Counts EMPTY = new Counts();
+}
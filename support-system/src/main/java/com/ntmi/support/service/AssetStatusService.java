@@ -0,0 +1,91 @@
+package com.ntmi.support.service;
+
+import com.ntmi.support.cache.AssetLookupIndex;
+import com.ntmi.support.model.Asset;
+import com.ntmi.support.model.AssetStatus;
+import com.ntmi.support.model.AssetStatusChange;
+import com.ntmi.support.model.Ticket;
+import com.ntmi.support.repository.AssetFailureStatsRepository;
+import com.ntmi.support.repository.AssetRepository;
+import com.ntmi.support.repository.AssetStatusChangeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Single entry point for saving an asset whose status may change.
+ * Writes the asset and its status history row in one transaction and keeps the
+ * scan lookup index and the live status counters in step (both apply the change after commit).
+ */
+@Service
+public class AssetStatusService {
+
+    @Autowired private AssetRepository assetRepository;
+    @Autowired private AssetStatusChangeRepository statusChangeRepository;
+    @Autowired private AssetFailureStatsRepository failureStatsRepository;
+    @Autowired private AssetLookupIndex assetLookupIndex;
+    @Autowired private AssetStatusCounters assetStatusCounters;
+
+    // Save an asset (new or edited). previousStatus / previousBranchId = values before the edit (ignored for new assets).
+    @Transactional
+    public Asset save(Asset asset, AssetStatus previousStatus, Long previousBranchId, Ticket cause) {
+        boolean isNew = asset.getAssetId() == null;
+        Asset saved = assetRepository.save(asset);
+        Long branchId = saved.getBranch() != null ? saved.getBranch().getBranchId() : null;
+
+        if (isNew) {
+            recordChange(saved.getAssetId(), null, saved.getStatus(), cause);
+            assetStatusCounters.assetAdded(branchId, saved.getStatus());
+        } else {
+            if (previousStatus != saved.getStatus()) {
+                recordChange(saved.getAssetId(), previousStatus, saved.getStatus(), cause);
+            }
+            assetStatusCounters.assetChanged(saved.getAssetId(), previousBranchId, previousStatus, branchId, saved.getStatus());
+        }
+        assetLookupIndex.put(saved);
+        return saved;
+    }
+
+    // Status transition driven by a ticket (start -> REPAIR, close -> ACTIVE / DISPOSED)
+    @Transactional
+    public Asset changeStatus(Asset asset, AssetStatus newStatus, Ticket cause) {
+        AssetStatus previous = asset.getStatus();
+        Long branchId = asset.getBranch() != null ? asset.getBranch().getBranchId() : null;
+        asset.setStatus(newStatus);
+        return save(asset, previous, branchId, cause);
+    }
+
+    // Delete an asset together with its status history
+    @Transactional
+    public void delete(Long assetId) {
+        Asset asset = assetRepository.findById(assetId).orElse(null);
+        if (asset == null) return;
+        assetRepository.delete(asset);
+        assetRepository.flush(); // surface FK violations (linked tickets) before touching history
+        statusChangeRepository.deleteByAssetId(assetId);
+        failureStatsRepository.findByAssetId(assetId).ifPresent(failureStatsRepository::delete);
+        assetLookupIndex.remove(assetId);
+        assetStatusCounters.assetRemoved(asset.getBranch() != null ? asset.getBranch().getBranchId() : null, asset.getStatus());
+    }
+
+    private void recordChange(Long assetId, AssetStatus oldStatus, AssetStatus newStatus, Ticket cause) {
+        if (newStatus == null) return;
+        AssetStatusChange change = new AssetStatusChange();
+        change.setAssetId(assetId);
+        change.setOldStatus(oldStatus);
+        change.setNewStatus(newStatus);
+        change.setChangedAt(LocalDateTime.now());
+        change.setTicketId(cause != null ? cause.getTicketId() : null);
+        change.setChangedBy(currentUsername());
+        statusChangeRepository.save(change);
+    }
+
+    private String currentUsername() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null ? auth.getName() : null;
+    }
+}
@@ -0,0 +1,194 @@
+package com.ntmi.support.service;
+
+import com.ntmi.support.dto.TimelineEvent;
+import com.ntmi.support.dto.TimelineEvent.Type;
+import com.ntmi.support.repository.AssetStatusChangeRepository;
+import com.ntmi.support.repository.RepairRecordRepository;
+import com.ntmi.support.repository.TicketRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Asset lifecycle timeline: tickets, status changes and repair records, newest first.
+ * <p>
+ * Each source is read with a keyset query on its (asset_id, time, id) index, in chunks,
+ * and the three streams are merged with a priority queue. A page therefore reads at most
+ * ~limit rows per source, however long the asset's history is.
+ * <p>
+ * Order: timestamp DESC, then {@link Type} declaration order, then id DESC.
+ * The cursor is the last event of the previous page: "timestamp~TYPE~id".
+ */
+@Service
+public class AssetTimelineService {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 200;
+
+    // Upper bound for the first page (SQL Server datetime2 cannot hold LocalDateTime.MAX)
+    private static final LocalDateTime END_OF_TIME = LocalDateTime.of(9999, 1, 1, 0, 0);
+
+    private static final Comparator<TimelineEvent> NEWEST_FIRST = Comparator
+            .comparing(TimelineEvent::getTimestamp).reversed()
+            .thenComparing(TimelineEvent::getType)
+            .thenComparing(TimelineEvent::getId, Comparator.reverseOrder());
+
+    @Autowired private TicketRepository ticketRepository;
+    @Autowired private AssetStatusChangeRepository statusChangeRepository;
+    @Autowired private RepairRecordRepository repairRecordRepository;
+
+    public Map<String, Object> getTimeline(Long assetId, String cursor, int limit) {
+        int pageSize = Math.min(Math.max(limit, 1), MAX_LIMIT);
+        Cursor after = cursor == null || cursor.isBlank() ? null : Cursor.parse(cursor);
+
+        // 1. One lazily-paged stream per source, positioned just after the cursor
+        List<EventStream> streams = List.of(
+                new EventStream(Type.TICKET, after, pageSize + 1, (before, beforeId, n) -> loadTickets(assetId, before, beforeId, n)),
+                new EventStream(Type.STATUS_CHANGE, after, pageSize + 1, (before, beforeId, n) -> loadStatusChanges(assetId, before, beforeId, n)),
+                new EventStream(Type.REPAIR, after, pageSize + 1, (before, beforeId, n) -> loadRepairs(assetId, before, beforeId, n)));
+
+        // 2. k-way merge
+        PriorityQueue<EventStream> heads = new PriorityQueue<>(Comparator.comparing(EventStream::peek, NEWEST_FIRST));
+        for (EventStream s : streams) {
+            if (s.peek() != null) heads.add(s);
+        }
+
+        List<TimelineEvent> events = new ArrayList<>(pageSize);
+        while (events.size() < pageSize && !heads.isEmpty()) {
+            EventStream s = heads.poll();
+            events.add(s.next());
+            if (s.peek() != null) heads.add(s);
+        }
+
+        Map<String, Object> page = new HashMap<>();
+        page.put("events", events);
+        page.put("nextCursor", !heads.isEmpty() && !events.isEmpty() ? Cursor.of(events.get(events.size() - 1)).encode() : null);
+        return page;
+    }
+
+    // --- Sources (projection queries, no entity graphs) ---
+
+    private List<TimelineEvent> loadTickets(Long assetId, LocalDateTime before, long beforeId, int n) {
+        List<TimelineEvent> out = new ArrayList<>();
+        for (Object[] r : ticketRepository.findAssetTimelinePage(assetId, before, beforeId, PageRequest.of(0, n))) {
+            String subject = (String) r[3];
+            out.add(new TimelineEvent(Type.TICKET, (Long) r[0], (LocalDateTime) r[1],
+                    "Ticket " + r[2] + " opened", (subject != null ? subject + " · " : "") + r[4] + " / " + r[5],
+                    (Long) r[0], null));
+        }
+        return out;
+    }
+
+    private List<TimelineEvent> loadStatusChanges(Long assetId, LocalDateTime before, long beforeId, int n) {
+        List<TimelineEvent> out = new ArrayList<>();
+        for (Object[] r : statusChangeRepository.findTimelinePage(assetId, before, beforeId, PageRequest.of(0, n))) {
+            String title = r[2] == null ? "Registered as " + r[3] : "Status " + r[2] + " → " + r[3];
+            out.add(new TimelineEvent(Type.STATUS_CHANGE, (Long) r[0], (LocalDateTime) r[1],
+                    title, r[5] != null ? "by " + r[5] : null, (Long) r[4], null));
+        }
+        return out;
+    }
+
+    // Repairs carry only a date, placed at the start of that day (repairs without a date are not listed)
+    private List<TimelineEvent> loadRepairs(Long assetId, LocalDateTime before, long beforeId, int n) {
+        LocalDate day = before.toLocalDate();
+        // Any repair on the cursor's own day is older than a cursor after midnight
+        long idBound = before.toLocalTime().equals(LocalTime.MIDNIGHT) ? beforeId : Long.MAX_VALUE;
+
+        List<TimelineEvent> out = new ArrayList<>();
+        for (Object[] r : repairRecordRepository.findTimelinePage(assetId, day, idBound, PageRequest.of(0, n))) {
+            out.add(new TimelineEvent(Type.REPAIR, (Long) r[0], ((LocalDate) r[1]).atStartOfDay(),
+                    "Repair", (String) r[2], (Long) r[4], (BigDecimal) r[3]));
+        }
+        return out;
+    }
+
+    // --- Merge plumbing ---
+
+    @FunctionalInterface
+    private interface ChunkLoader {
+        // Up to n events strictly older than (before, beforeId), newest first
+        List<TimelineEvent> load(LocalDateTime before, long beforeId, int n);
+    }
+
+    // One source, fetched chunk by chunk as the merge consumes it
+    private static class EventStream {
+        private final ChunkLoader loader;
+        private final int chunkSize;
+        private List<TimelineEvent> chunk;
+        private int pos = 0;
+        private boolean exhausted = false;
+
+        EventStream(Type type, Cursor after, int chunkSize, ChunkLoader loader) {
+            this.loader = loader;
+            this.chunkSize = chunkSize;
+
+            LocalDateTime before = END_OF_TIME;
+            long beforeId = Long.MAX_VALUE;
+            if (after != null) {
+                before = after.timestamp;
+                // Same timestamp: types ordered after the cursor's type are still to come
+                int cmp = type.compareTo(after.type);
+                beforeId = cmp > 0 ? Long.MAX_VALUE : cmp < 0 ? Long.MIN_VALUE : after.id;
+            }
+            fill(before, beforeId);
+        }
+
+        TimelineEvent peek() {
+            if (pos == chunk.size() && !exhausted) {
+                TimelineEvent last = chunk.get(chunk.size() - 1);
+                fill(last.getTimestamp(), last.getId());
+            }
+            return pos < chunk.size() ? chunk.get(pos) : null;
+        }
+
+        TimelineEvent next() {
+            TimelineEvent e = peek();
+            pos++;
+            return e;
+        }
+
+        private void fill(LocalDateTime before, long beforeId) {
+            chunk = loader.load(before, beforeId, chunkSize);
+            pos = 0;
+            exhausted = chunk.size() < chunkSize;
+        }
+    }
+
+    private static class Cursor {
+        final LocalDateTime timestamp;
+        final Type type;
+        final long id;
+
+        Cursor(LocalDateTime timestamp, Type type, long id) {
+            this.timestamp = timestamp;
+            this.type = type;
+            this.id = id;
+        }
+
+        static Cursor of(TimelineEvent e) {
+            return new Cursor(e.getTimestamp(), e.getType(), e.getId());
+        }
+
+        static Cursor parse(String value) {
+            String[] parts = value.split("~");
+            if (parts.length != 3) throw new IllegalArgumentException("Invalid cursor: " + value);
+            try {
+                return new Cursor(LocalDateTime.parse(parts[0]), Type.valueOf(parts[1]), Long.parseLong(parts[2]));
+            } catch (DateTimeParseException | IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + value);
+            }
+        }
+
+        String encode() {
+            return timestamp + "~" + type + "~" + id;
+        }
+    }
+}
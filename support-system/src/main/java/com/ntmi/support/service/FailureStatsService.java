@@ -0,0 +1,218 @@
+package com.ntmi.support.service;
+
+import com.ntmi.support.dto.analytics.MtbfStatsDTO;
+import com.ntmi.support.model.AssetFailureStats;
+import com.ntmi.support.model.Ticket;
+import com.ntmi.support.repository.AssetFailureStatsRepository;
+import com.ntmi.support.repository.AssetRepository;
+import com.ntmi.support.repository.TicketRepository;
+import com.ntmi.support.scheduler.ClusterJobLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Per-asset failure interval tracking (MTBF with variance).
+ * <p>
+ * Each ticket raised against an asset updates that asset's running sums under a row lock,
+ * so reads are a single row (asset) or one grouped query (model). A full rebuild from
+ * ticket history runs as a nightly batch job, never on a request. It writes in small chunks,
+ * each in its own short transaction, so a ticket being recorded meanwhile waits at most one chunk.
+ */
+@Service
+public class FailureStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FailureStatsService.class);
+
+    private static final int REBUILD_CHUNK_SIZE = 500;
+
+    // Rebuild writes skip a row that recorded a failure after the rebuild read ticket history
+    private static final String REBUILD_UPDATE_SQL =
+            "UPDATE asset_failure_stats SET failure_count = ?, interval_count = ?, interval_sum_hours = ?, " +
+            "interval_sum_sq_hours = ?, first_failure_at = ?, last_failure_at = ? " +
+            "WHERE asset_id = ? AND (last_failure_at IS NULL OR last_failure_at < ?)";
+
+    private static final String REBUILD_INSERT_SQL =
+            "INSERT INTO asset_failure_stats (failure_count, interval_count, interval_sum_hours, interval_sum_sq_hours, " +
+            "first_failure_at, last_failure_at, asset_id) SELECT ?, ?, ?, ?, ?, ?, ? " +
+            "WHERE NOT EXISTS (SELECT 1 FROM asset_failure_stats WHERE asset_id = ?)";
+
+    private static final int[] REBUILD_UPDATE_TYPES = {
+            Types.BIGINT, Types.BIGINT, Types.DOUBLE, Types.DOUBLE, Types.TIMESTAMP, Types.TIMESTAMP, Types.BIGINT, Types.TIMESTAMP };
+
+    private static final int[] REBUILD_INSERT_TYPES = {
+            Types.BIGINT, Types.BIGINT, Types.DOUBLE, Types.DOUBLE, Types.TIMESTAMP, Types.TIMESTAMP, Types.BIGINT, Types.BIGINT };
+
+    // Rows in the chunk's asset id range whose asset no longer has any ticket
+    private static final String REBUILD_DELETE_STALE_SQL =
+            "DELETE FROM asset_failure_stats WHERE asset_id > ? AND asset_id <= ? " +
+            "AND (last_failure_at IS NULL OR last_failure_at < ?) " +
+            "AND NOT EXISTS (SELECT 1 FROM tickets t WHERE t.asset_id = asset_failure_stats.asset_id AND t.created_at IS NOT NULL)";
+
+    @Autowired private AssetFailureStatsRepository statsRepository;
+    @Autowired private AssetRepository assetRepository;
+    @Autowired private TicketRepository ticketRepository;
+    @Autowired private TransactionTemplate transactionTemplate;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private ClusterJobLock jobLock;
+
+    // Own transaction for the incremental update: a failed attempt must not mark the caller's
+    // transaction rollback-only (and code run in afterCommit would otherwise join the old one)
+    private TransactionTemplate requiresNew;
+
+    @Autowired
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // --- 1. Incremental update (called when a ticket with an asset is created) ---
+
+    // Inside a transaction (TicketService.createTicket) this runs after it commits, so a rolled-back
+    // ticket is never counted. Without one (TicketController.createTicket saves the ticket directly)
+    // it runs right away on the caller's thread, in its own short transaction.
+    public void recordFailure(Ticket ticket) {
+        if (ticket.getAsset() == null || ticket.getAsset().getAssetId() == null) return;
+        Long assetId = ticket.getAsset().getAssetId();
+        LocalDateTime at = ticket.getCreatedAt() != null ? ticket.getCreatedAt() : LocalDateTime.now();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record(assetId, at, ticket.getTicketId());
+                }
+            });
+        } else {
+            record(assetId, at, ticket.getTicketId());
+        }
+    }
+
+    private void record(Long assetId, LocalDateTime at, Long ticketId) {
+        // Two attempts: the first ticket of an asset inserts its row and can race with another node
+        for (int attempt = 1; attempt <= 2; attempt++) {
+            try {
+                requiresNew.executeWithoutResult(status -> {
+                    AssetFailureStats stats = statsRepository.findForUpdate(assetId).orElseGet(() -> {
+                        AssetFailureStats fresh = new AssetFailureStats();
+                        fresh.setAssetId(assetId);
+                        return fresh;
+                    });
+                    stats.recordFailure(at);
+                    statsRepository.saveAndFlush(stats);
+                });
+                return;
+            } catch (DataIntegrityViolationException e) {
+                if (attempt == 2) {
+                    logger.error("Could not record failure for asset #{} (Ticket #{})", assetId, ticketId, e);
+                }
+            }
+        }
+    }
+
+    // --- 2. Queries ---
+
+    public MtbfStatsDTO getAssetMtbf(Long assetId) {
+        String code = assetRepository.findById(assetId).map(a -> a.getAssetCode()).orElse(String.valueOf(assetId));
+        return statsRepository.findByAssetId(assetId)
+                .map(s -> MtbfStatsDTO.of(code, 1, s.getFailureCount(), s.getIntervalCount(),
+                        s.getIntervalSumHours(), s.getIntervalSumSqHours(), s.getLastFailureAt()))
+                .orElseGet(() -> MtbfStatsDTO.of(code, 1, 0, 0, 0, 0, null));
+    }
+
+    // Intervals of all assets of a model pooled together (optionally one branch), worst MTBF first
+    public List<MtbfStatsDTO> getModelMtbf(Long branchId) {
+        List<MtbfStatsDTO> result = new ArrayList<>();
+        for (Object[] r : statsRepository.sumByModel(branchId)) {
+            result.add(MtbfStatsDTO.of((String) r[0], (Long) r[1], (Long) r[2], (Long) r[3],
+                    r[4] != null ? (Double) r[4] : 0, r[5] != null ? (Double) r[5] : 0, null));
+        }
+        result.sort(Comparator.comparing(MtbfStatsDTO::getMtbfHours, Comparator.nullsLast(Comparator.naturalOrder())));
+        return result;
+    }
+
+    // --- 3. Offline rebuild from ticket history ---
+
+    @Scheduled(cron = "${reliability.failure-stats.rebuild-cron:0 30 2 * * *}")
+    public void scheduledRebuild() {
+        jobLock.runExclusively("failure-stats-rebuild", this::rebuild);
+    }
+
+    // Not one transaction: the chunks commit one by one. An asset that records a new failure while
+    // the rebuild runs keeps its live row and is corrected by the next rebuild.
+    public int rebuild() {
+        Timestamp startedAt = Timestamp.valueOf(LocalDateTime.now());
+
+        // Ordered by asset, then time: one pass builds every asset's row
+        List<AssetFailureStats> rows = new ArrayList<>();
+        AssetFailureStats current = null;
+        for (Object[] r : ticketRepository.findFailureTimesByAsset()) {
+            Long assetId = (Long) r[0];
+            if (current == null || !current.getAssetId().equals(assetId)) {
+                current = new AssetFailureStats();
+                current.setAssetId(assetId);
+                rows.add(current);
+            }
+            current.recordFailure((LocalDateTime) r[1]);
+        }
+
+        // Chunks cover consecutive asset id ranges (the last one open-ended), so stale rows between them go too
+        int from = 0;
+        long rangeStart = Long.MIN_VALUE;
+        do {
+            int to = Math.min(from + REBUILD_CHUNK_SIZE, rows.size());
+            long rangeEnd = (to == rows.size()) ? Long.MAX_VALUE : rows.get(to - 1).getAssetId();
+            writeChunk(rows.subList(from, to), rangeStart, rangeEnd, startedAt);
+            rangeStart = rangeEnd;
+            from = to;
+        } while (from < rows.size());
+
+        logger.info("Rebuilt failure interval stats for {} assets", rows.size());
+        return rows.size();
+    }
+
+    private void writeChunk(List<AssetFailureStats> chunk, long rangeStart, long rangeEnd, Timestamp startedAt) {
+        List<Object[]> updates = new ArrayList<>(chunk.size());
+        List<Object[]> inserts = new ArrayList<>(chunk.size());
+        for (AssetFailureStats s : chunk) {
+            Timestamp first = Timestamp.valueOf(s.getFirstFailureAt());
+            Timestamp last = Timestamp.valueOf(s.getLastFailureAt());
+            updates.add(new Object[] { s.getFailureCount(), s.getIntervalCount(), s.getIntervalSumHours(),
+                    s.getIntervalSumSqHours(), first, last, s.getAssetId(), startedAt });
+            inserts.add(new Object[] { s.getFailureCount(), s.getIntervalCount(), s.getIntervalSumHours(),
+                    s.getIntervalSumSqHours(), first, last, s.getAssetId(), s.getAssetId() });
+        }
+
+        // Two attempts: an asset's first live failure can insert its row between our check and insert
+        for (int attempt = 1; attempt <= 2; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (!updates.isEmpty()) {
+                        jdbcTemplate.batchUpdate(REBUILD_UPDATE_SQL, updates, REBUILD_UPDATE_TYPES);
+                        jdbcTemplate.batchUpdate(REBUILD_INSERT_SQL, inserts, REBUILD_INSERT_TYPES);
+                    }
+                    jdbcTemplate.update(REBUILD_DELETE_STALE_SQL, rangeStart, rangeEnd, startedAt);
+                });
+                return;
+            } catch (DataIntegrityViolationException e) {
+                if (attempt == 2) throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.ntmi.support.service;
+
+import com.ntmi.support.model.MttrSketch;
+import com.ntmi.support.model.Ticket;
+import com.ntmi.support.repository.MttrSketchRepository;
+import com.ntmi.support.repository.TicketRepository;
+import com.ntmi.support.service.analytics.QuantileSketch;
+import com.ntmi.support.service.analytics.TimeRange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Maintains per-day, per-branch, per-category resolution-time sketches.
+ * <p>
+ * A ticket is added to its sketch once, when it is resolved. Percentiles for any
+ * range/branch/category are then a merge of a few small rows instead of a sort
+ * over every ticket.
+ */
+@Service
+public class MttrSketchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MttrSketchService.class);
+
+    @Autowired private MttrSketchRepository sketchRepository;
+    @Autowired private TicketRepository ticketRepository;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    // --- 1. Incremental update (called when a ticket is resolved) ---
+
+    public void recordResolution(Ticket ticket) {
+        if (ticket.getCreatedAt() == null || ticket.getResolvedAt() == null) return;
+
+        double hours = Duration.between(ticket.getCreatedAt(), ticket.getResolvedAt()).toMinutes() / 60.0;
+        LocalDate day = ticket.getResolvedAt().toLocalDate();
+        Long branchId = ticket.getBranch() != null ? ticket.getBranch().getBranchId() : null;
+        Long categoryId = ticket.getErrorCategory() != null ? ticket.getErrorCategory().getCategoryId() : null;
+
+        // Two attempts: the first insert of a day's row can race with another node
+        for (int attempt = 1; attempt <= 2; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> addToSketch(day, branchId, categoryId, hours));
+                return;
+            } catch (DataIntegrityViolationException e) {
+                if (attempt == 2) {
+                    logger.error("Could not record MTTR for Ticket #{}", ticket.getTicketId(), e);
+                }
+            }
+        }
+    }
+
+    private void addToSketch(LocalDate day, Long branchId, Long categoryId, double hours) {
+        MttrSketch row = sketchRepository.findForUpdate(day, branchId, categoryId).orElseGet(() -> {
+            MttrSketch fresh = new MttrSketch();
+            fresh.setDay(day);
+            fresh.setBranchId(branchId);
+            fresh.setCategoryId(categoryId);
+            return fresh;
+        });
+
+        QuantileSketch sketch = QuantileSketch.deserialize(row.getSketchData());
+        sketch.add(hours);
+        row.setSketchData(sketch.serialize());
+        row.setTicketCount(sketch.getCount());
+        sketchRepository.saveAndFlush(row);
+    }
+
+    // --- 2. Queries ---
+
+    // Merged sketch for a branch (null = all) and category (null = all) over the range
+    public QuantileSketch mergedSketch(Long branchId, Long categoryId, TimeRange range) {
+        QuantileSketch merged = new QuantileSketch();
+        for (MttrSketch row : sketchRepository.findInRange(branchId, categoryId, range.getFrom(), range.getTo())) {
+            merged.merge(QuantileSketch.deserialize(row.getSketchData()));
+        }
+        return merged;
+    }
+
+    // Merged sketch per category (key null = uncategorised)
+    public Map<Long, QuantileSketch> sketchesByCategory(Long branchId, TimeRange range) {
+        Map<Long, QuantileSketch> result = new HashMap<>();
+        for (MttrSketch row : sketchRepository.findInRange(branchId, null, range.getFrom(), range.getTo())) {
+            result.computeIfAbsent(row.getCategoryId(), k -> new QuantileSketch())
+                  .merge(QuantileSketch.deserialize(row.getSketchData()));
+        }
+        return result;
+    }
+
+    // --- 3. Offline rebuild (backfill history or repair drift) ---
+
+    @Transactional
+    public int rebuild(TimeRange range) {
+        sketchRepository.deleteInRange(range.getFrom(), range.getTo());
+
+        // Key: day|branch|category
+        Map<String, MttrSketch> rows = new HashMap<>();
+        Map<String, QuantileSketch> sketches = new HashMap<>();
+
+        for (Object[] r : ticketRepository.findResolutionTimes(range.startDateTime(), range.endDateTimeExclusive())) {
+            LocalDateTime created = (LocalDateTime) r[0];
+            LocalDateTime resolved = (LocalDateTime) r[1];
+            if (created == null) continue;
+            Long branchId = (Long) r[2];
+            Long categoryId = (Long) r[3];
+            LocalDate day = resolved.toLocalDate();
+
+            String key = day + "|" + branchId + "|" + categoryId;
+            rows.computeIfAbsent(key, k -> {
+                MttrSketch row = new MttrSketch();
+                row.setDay(day);
+                row.setBranchId(branchId);
+                row.setCategoryId(categoryId);
+                return row;
+            });
+            sketches.computeIfAbsent(key, k -> new QuantileSketch())
+                    .add(Duration.between(created, resolved).toMinutes() / 60.0);
+        }
+
+        rows.forEach((key, row) -> {
+            QuantileSketch sketch = sketches.get(key);
+            row.setSketchData(sketch.serialize());
+            row.setTicketCount(sketch.getCount());
+        });
+        sketchRepository.saveAll(rows.values());
+
+        logger.info("Rebuilt {} MTTR sketches for {}", rows.size(), range);
+        return rows.size();
+    }
+}
@@ -0,0 +1,327 @@
+package com.ntmi.support.service;
+
+import com.ntmi.support.dto.NotificationDTO;
+import com.ntmi.support.dto.NotificationMsg;
+import com.ntmi.support.event.NotificationRequestedEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers notifications off the request thread.
+ * <p>
+ * - {@link NotificationRequestedEvent}s are accepted after the publishing transaction commits
+ *   and put on a bounded queue drained by a small pool of worker threads.
+ * - A worker saves the row (NotificationWriter), adds it to the user's replay buffer, then
+ *   pushes over WebSocket: to the user's queue, or once to the role topic for a broadcast.
+ *   A failure in either step is retried with exponential backoff; a job already saved only
+ *   retries the pushes still pending.
+ * - Events with a coalesce key are held per (recipient, key) for the coalescing window and
+ *   then delivered as one notification ("3 new replies on Ticket #12").
+ * - When the queue stays full for the offer timeout, the overflow policy applies:
+ *   CALLER_RUNS delivers on the publishing thread (slows producers, loses nothing),
+ *   DROP discards the notification and counts it.
+ * Jobs live in memory only: anything still queued when the JVM dies is lost.
+ */
+@Component
+public class NotificationDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+    public enum OverflowPolicy { CALLER_RUNS, DROP }
+
+    @Autowired private NotificationWriter notificationWriter;
+    @Autowired private SimpMessagingTemplate messagingTemplate;
+    @Autowired private NotificationUnreadCounters unreadCounters;
+    @Autowired private NotificationReplayBuffer replayBuffer;
+
+    @Value("${notifications.dispatch.workers:4}")
+    private int workerCount;
+
+    @Value("${notifications.dispatch.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${notifications.dispatch.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${notifications.dispatch.backoff:500ms}")
+    private Duration backoff;
+
+    @Value("${notifications.dispatch.max-backoff:30s}")
+    private Duration maxBackoff;
+
+    @Value("${notifications.dispatch.offer-timeout:50ms}")
+    private Duration offerTimeout;
+
+    @Value("${notifications.dispatch.overflow:CALLER_RUNS}")
+    private OverflowPolicy overflowPolicy;
+
+    // 0 disables coalescing
+    @Value("${notifications.coalesce.window:10s}")
+    private Duration coalesceWindow;
+
+    private BlockingQueue<Job> queue;
+    private final List<Thread> workers = new ArrayList<>();
+    private ScheduledExecutorService scheduler; // retries + coalescing window flushes
+    private volatile boolean running = false;
+
+    // (recipient | coalesce key) -> events collected in the current window
+    private final ConcurrentHashMap<String, Burst> bursts = new ConcurrentHashMap<>();
+
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong callerRuns = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private Timer latency;
+
+    @Autowired
+    public void registerMetrics(MeterRegistry registry) {
+        Gauge.builder("notifications.dispatch.queue.depth", this, NotificationDispatcher::queueDepth)
+                .description("Notifications waiting for a worker").register(registry);
+        latency = Timer.builder("notifications.dispatch.latency")
+                .description("Time from commit to delivered (saved + pushed)")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        FunctionCounter.builder("notifications.dispatch.delivered", delivered, AtomicLong::get).register(registry);
+        FunctionCounter.builder("notifications.dispatch.retries", retries, AtomicLong::get).register(registry);
+        FunctionCounter.builder("notifications.dispatch.failed", failed, AtomicLong::get)
+                .description("Gave up after max attempts").register(registry);
+        FunctionCounter.builder("notifications.dispatch.dropped", dropped, AtomicLong::get)
+                .description("Discarded because the queue was full (DROP policy)").register(registry);
+        FunctionCounter.builder("notifications.dispatch.caller_runs", callerRuns, AtomicLong::get)
+                .description("Delivered on the publishing thread because the queue was full").register(registry);
+        FunctionCounter.builder("notifications.coalesced", coalesced, AtomicLong::get)
+                .description("Notifications merged into an earlier one of the same burst").register(registry);
+        Gauge.builder("notifications.coalesce.pending", bursts, Map::size)
+                .description("Bursts waiting for their window to close").register(registry);
+    }
+
+    // --- Lifecycle ---
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "notify-scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+        running = true;
+        // Platform threads: the workers mostly wait on JDBC / the broker, a handful is enough
+        for (int i = 1; i <= workerCount; i++) {
+            Thread t = new Thread(this::workLoop, "notify-worker-" + i);
+            t.setDaemon(true);
+            t.start();
+            workers.add(t);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        // Deliver open bursts now rather than losing them
+        bursts.keySet().forEach(this::flushBurst);
+        running = false;
+        List<Runnable> pendingRetries = scheduler.shutdownNow();
+        if (!pendingRetries.isEmpty()) {
+            logger.warn("Shutting down with {} notification retries pending", pendingRetries.size());
+        }
+        // Workers drain what is already queued, then exit
+        for (Thread t : workers) {
+            try {
+                t.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    // --- 1. Intake (after the publisher's commit, or immediately without a transaction) ---
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNotificationRequested(NotificationRequestedEvent event) {
+        if (event.getCoalesceKey() != null && !coalesceWindow.isZero() && running) {
+            coalesce(event);
+        } else {
+            enqueue(new Job(event));
+        }
+    }
+
+    // --- 2. Coalescing (fixed window from the first event of a burst) ---
+
+    private void coalesce(NotificationRequestedEvent event) {
+        String key = event.targetKey() + "|" + event.getCoalesceKey();
+        boolean[] opened = {false};
+        bursts.compute(key, (k, burst) -> {
+            if (burst == null) {
+                opened[0] = true;
+                return new Burst(event);
+            }
+            burst.add(event);
+            coalesced.incrementAndGet();
+            return burst;
+        });
+        if (opened[0]) {
+            try {
+                scheduler.schedule(() -> flushBurst(key), coalesceWindow.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                flushBurst(key);
+            }
+        }
+    }
+
+    private void flushBurst(String key) {
+        Burst burst = bursts.remove(key);
+        if (burst == null) return;
+
+        NotificationRequestedEvent latest = burst.latest;
+        NotificationRequestedEvent merged = burst.count == 1
+                ? latest
+                : latest.withContent(burst.count + " " + latest.getSummary(), latest.getMessage(), latest.getType());
+        Job job = new Job(merged);
+        job.enqueuedAt = burst.startedAt; // latency includes the time spent in the window
+        enqueue(job);
+    }
+
+    private void enqueue(Job job) {
+        boolean accepted = false;
+        if (running) {
+            try {
+                accepted = queue.offer(job, offerTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (accepted) return;
+
+        if (overflowPolicy == OverflowPolicy.DROP && running) {
+            dropped.incrementAndGet();
+            logger.warn("Notification queue full, dropped '{}'", job.event.getTitle());
+        } else {
+            callerRuns.incrementAndGet();
+            process(job);
+        }
+    }
+
+    // --- 3. Workers ---
+
+    private void workLoop() {
+        while (running || !queue.isEmpty()) {
+            try {
+                Job job = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (job != null) process(job);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("Notification worker error", e);
+            }
+        }
+    }
+
+    private void process(Job job) {
+        try {
+            // 1. Save once; retries after this point only redo the pushes
+            if (job.pendingPushes == null) {
+                NotificationWriter.Delivery delivery = notificationWriter.persist(job.event);
+                job.pendingPushes = new ArrayList<>(delivery.targets);
+                job.item = delivery.item;
+                // Committed: keep it for replay, bump the cached unread counts (this also pushes them)
+                if (delivery.item != null) replayBuffer.append(delivery.userId, delivery.item);
+                if (job.event.getRole() != null) {
+                    unreadCounters.roleNotified(job.event.getRole());
+                } else {
+                    job.pendingPushes.forEach(unreadCounters::userNotified);
+                }
+            }
+
+            // 2. Push; the failing recipient and everyone after it stay pending.
+            // Users get the full item with its seq (clients track it for replay), topics title + message.
+            Iterator<String> it = job.pendingPushes.iterator();
+            while (it.hasNext()) {
+                String target = it.next();
+                if (target.startsWith(NotificationWriter.TOPIC_PREFIX)) {
+                    messagingTemplate.convertAndSend(target, new NotificationMsg(job.event.getTitle(), job.event.getMessage()));
+                } else {
+                    messagingTemplate.convertAndSendToUser(target, "/queue/notifications", job.item);
+                }
+                it.remove();
+            }
+
+            delivered.incrementAndGet();
+            latency.record(System.nanoTime() - job.enqueuedAt, TimeUnit.NANOSECONDS);
+        } catch (Exception e) {
+            retryLater(job, e);
+        }
+    }
+
+    private void retryLater(Job job, Exception cause) {
+        job.attempts++;
+        if (job.attempts >= maxAttempts || !running) {
+            failed.incrementAndGet();
+            logger.error("Giving up on notification '{}' after {} attempts", job.event.getTitle(), job.attempts, cause);
+            return;
+        }
+        long delay = Math.min(backoff.toMillis() << (job.attempts - 1), maxBackoff.toMillis());
+        retries.incrementAndGet();
+        logger.warn("Notification '{}' failed (attempt {}), retrying in {} ms: {}",
+                job.event.getTitle(), job.attempts, delay, cause.getMessage());
+        try {
+            scheduler.schedule(() -> enqueue(job), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            failed.incrementAndGet();
+        }
+    }
+
+    public int queueDepth() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    private static final class Burst {
+        final long startedAt = System.nanoTime();
+        NotificationRequestedEvent latest;
+        int count;
+
+        Burst(NotificationRequestedEvent first) {
+            this.latest = first;
+            this.count = 1;
+        }
+
+        void add(NotificationRequestedEvent event) {
+            latest = event;
+            count++;
+        }
+    }
+
+    private static final class Job {
+        final NotificationRequestedEvent event;
+        long enqueuedAt = System.nanoTime();
+        int attempts = 0;
+        List<String> pendingPushes; // null until the row(s) are saved
+        NotificationDTO item;       // saved personal notification
+
+        Job(NotificationRequestedEvent event) {
+            this.event = event;
+        }
+    }
+}
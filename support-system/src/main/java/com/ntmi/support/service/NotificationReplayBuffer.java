@@ -0,0 +1,134 @@
+package com.ntmi.support.service;
+
+import com.ntmi.support.dto.NotificationDTO;
+import com.ntmi.support.repository.NotificationRepository;
+import com.ntmi.support.repository.NotificationSequenceRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recent personal notifications per user, kept so a client that reconnects can get exactly
+ * what it missed instead of reloading its inbox.
+ * <p>
+ * The dispatcher appends every saved notification (with its per-user seq) to the user's ring
+ * of the last buffer-size items. A replay from lastSeq is answered from the ring only when the
+ * ring holds every seq from lastSeq + 1 up to the user's last_seq in notification_sequences,
+ * otherwise from the database (indexed on user_id, seq). With several nodes each ring only has
+ * the seqs its own node wrote, so a ring with holes must never be trusted. A gap larger than
+ * max-replay is not replayed; the client is told to resync (reload its first inbox page).
+ * Rings of users without new notifications for idle-ttl are dropped.
+ */
+@Component
+public class NotificationReplayBuffer {
+
+    @Autowired private NotificationRepository notificationRepository;
+    @Autowired private NotificationSequenceRepository sequenceRepository;
+
+    @Value("${notifications.replay.buffer-size:64}")
+    private int bufferSize;
+
+    @Value("${notifications.replay.max-replay:200}")
+    private int maxReplay;
+
+    @Value("${notifications.replay.idle-ttl:30m}")
+    private Duration idleTtl;
+
+    private final Map<Long, Ring> rings = new ConcurrentHashMap<>();
+
+    private final AtomicLong fromBuffer = new AtomicLong();
+    private final AtomicLong fromDatabase = new AtomicLong();
+    private final AtomicLong resyncs = new AtomicLong();
+
+    @Autowired
+    public void registerMetrics(MeterRegistry registry) {
+        Gauge.builder("notifications.replay.buffered_users", rings, Map::size).register(registry);
+        FunctionCounter.builder("notifications.replay.served", fromBuffer, AtomicLong::get)
+                .tag("source", "buffer").register(registry);
+        FunctionCounter.builder("notifications.replay.served", fromDatabase, AtomicLong::get)
+                .tag("source", "database").register(registry);
+        FunctionCounter.builder("notifications.replay.served", resyncs, AtomicLong::get)
+                .tag("source", "resync").register(registry);
+    }
+
+    public void append(Long userId, NotificationDTO item) {
+        if (item.getSeq() == null) return;
+        rings.computeIfAbsent(userId, k -> new Ring()).add(item, bufferSize);
+    }
+
+    /**
+     * Notifications of the user after lastSeq, oldest first.
+     *
+     * @return { items, lastSeq, resync } - resync = true when the gap exceeds max-replay
+     */
+    public Map<String, Object> replay(Long userId, long lastSeq) {
+        List<NotificationDTO> items = null;
+
+        // 1. Ring (one primary key read in the common case: a short drop)
+        Ring ring = rings.get(userId);
+        if (ring != null) {
+            long newestSeq = sequenceRepository.findLastSeq(userId).orElse(0L);
+            items = ring.after(lastSeq, newestSeq);
+            if (items != null) fromBuffer.incrementAndGet();
+        }
+
+        // 2. Gap older than the ring (or ring dropped / node restarted)
+        boolean resync = false;
+        if (items == null) {
+            items = notificationRepository.findAfterSeq(userId, lastSeq, PageRequest.of(0, maxReplay + 1));
+            if (items.size() > maxReplay) {
+                items = List.of();
+                resync = true;
+                resyncs.incrementAndGet();
+            } else {
+                fromDatabase.incrementAndGet();
+            }
+        }
+
+        long newest = resync
+                ? sequenceRepository.findLastSeq(userId).orElse(lastSeq)
+                : items.isEmpty() ? lastSeq : items.get(items.size() - 1).getSeq();
+        Map<String, Object> result = new HashMap<>();
+        result.put("items", items);
+        result.put("lastSeq", newest);
+        result.put("resync", resync);
+        return result;
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.replay.cleanup-interval:PT5M}")
+    public void dropIdleRings() {
+        long cutoff = System.nanoTime() - idleTtl.toNanos();
+        rings.values().removeIf(r -> r.lastAppend < cutoff);
+    }
+
+    private static final class Ring {
+        // seq -> item; sorted because two workers may append one user's items out of order
+        private final TreeMap<Long, NotificationDTO> items = new TreeMap<>();
+        volatile long lastAppend = System.nanoTime();
+
+        synchronized void add(NotificationDTO item, int capacity) {
+            items.put(item.getSeq(), item);
+            while (items.size() > capacity) items.pollFirstEntry();
+            lastAppend = System.nanoTime();
+        }
+
+        // Items lastSeq + 1 .. newestSeq, or null unless the ring holds every one of them
+        // (evicted, written on another node, or still being dispatched)
+        synchronized List<NotificationDTO> after(long lastSeq, long newestSeq) {
+            if (newestSeq <= lastSeq) return List.of();
+            NavigableMap<Long, NotificationDTO> missed = items.subMap(lastSeq, false, newestSeq, true);
+            if (missed.size() != newestSeq - lastSeq) return null;
+            return new ArrayList<>(missed.values());
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.ntmi.support.service;
+
+import com.ntmi.support.repository.BroadcastNotificationRepository;
+import com.ntmi.support.repository.BroadcastReceiptRepository;
+import com.ntmi.support.repository.NotificationArchiveRepository;
+import com.ntmi.support.repository.NotificationRepository;
+import com.ntmi.support.scheduler.ClusterJobLock;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Removes read notifications older than the retention age from the live table.
+ * <p>
+ * Works in small batches, one short transaction each (select ids on the is_read/created_at
+ * index, optionally copy them to notifications_archive, delete by id), with a pause between
+ * batches so inbox queries and inserts are never blocked for long. Unread notifications
+ * are kept whatever their age, so unread counts are not affected.
+ * <p>
+ * Broadcasts have no global read state, so they are removed by age alone (broadcast-max-age),
+ * together with their receipts, in the same kind of batches. They are deleted, not archived.
+ * Cached unread counts are recounted afterwards, since some of them may have been unread.
+ */
+@Service
+public class NotificationRetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationRetentionService.class);
+
+    public enum Mode { DELETE, ARCHIVE }
+
+    @Autowired private NotificationRepository notificationRepository;
+    @Autowired private NotificationArchiveRepository archiveRepository;
+    @Autowired private BroadcastNotificationRepository broadcastRepository;
+    @Autowired private BroadcastReceiptRepository receiptRepository;
+    @Autowired private NotificationUnreadCounters unreadCounters;
+    @Autowired private TransactionTemplate transactionTemplate;
+    @Autowired private ClusterJobLock jobLock;
+
+    @Value("${notifications.retention.enabled:true}")
+    private boolean enabled;
+
+    @Value("${notifications.retention.read-max-age:90d}")
+    private Duration readMaxAge;
+
+    @Value("${notifications.retention.broadcast-max-age:90d}")
+    private Duration broadcastMaxAge;
+
+    @Value("${notifications.retention.mode:DELETE}")
+    private Mode mode;
+
+    @Value("${notifications.retention.batch-size:500}")
+    private int batchSize;
+
+    @Value("${notifications.retention.batch-pause:100ms}")
+    private Duration batchPause;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    private final AtomicLong purgedTotal = new AtomicLong();
+    private final AtomicLong broadcastsPurgedTotal = new AtomicLong();
+    private final AtomicLong lastRunPurged = new AtomicLong();
+    // Refreshed after each run (a COUNT on every metrics scrape would be too expensive)
+    private final AtomicLong liveRows = new AtomicLong();
+    private final AtomicLong archivedRows = new AtomicLong();
+    private Timer runTimer;
+
+    @Autowired
+    public void registerMetrics(MeterRegistry registry) {
+        FunctionCounter.builder("notifications.retention.purged", purgedTotal, AtomicLong::get)
+                .description("Read notifications removed from the live table").register(registry);
+        FunctionCounter.builder("notifications.retention.broadcasts_purged", broadcastsPurgedTotal, AtomicLong::get)
+                .description("Broadcasts removed (with their receipts)").register(registry);
+        Gauge.builder("notifications.retention.last_run.purged", lastRunPurged, AtomicLong::get).register(registry);
+        runTimer = Timer.builder("notifications.retention.duration").register(registry);
+        Gauge.builder("notifications.table.rows", liveRows, AtomicLong::get)
+                .description("Rows in notifications (as of the last retention run)").register(registry);
+        Gauge.builder("notifications.archive.rows", archivedRows, AtomicLong::get)
+                .description("Rows in notifications_archive (as of the last retention run)").register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initTableSizes() {
+        refreshTableSizes();
+    }
+
+    @Scheduled(cron = "${notifications.retention.cron:0 15 3 * * *}")
+    public void scheduledSweep() {
+        if (enabled) jobLock.runExclusively("notification-retention", this::sweep);
+    }
+
+    /**
+     * Runs one sweep until no expired read notification is left.
+     *
+     * @return notifications and broadcasts removed, or -1 if a sweep is already running
+     */
+    public long sweep() {
+        if (!running.compareAndSet(false, true)) {
+            logger.info("Notification retention sweep already running, skipped");
+            return -1;
+        }
+        long start = System.nanoTime();
+        long purged = 0;
+        long broadcastsPurged = 0;
+        try {
+            // Fixed for the whole run so rows read during the sweep are left for the next one
+            LocalDateTime cutoff = LocalDateTime.now().minus(readMaxAge);
+            purged = purgeAll(() -> purgeBatch(cutoff), purgedTotal);
+
+            LocalDateTime broadcastCutoff = LocalDateTime.now().minus(broadcastMaxAge);
+            broadcastsPurged = purgeAll(() -> purgeBroadcastBatch(broadcastCutoff), broadcastsPurgedTotal);
+        } finally {
+            lastRunPurged.set(purged + broadcastsPurged);
+            runTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            refreshTableSizes();
+            running.set(false);
+        }
+        if (broadcastsPurged > 0) unreadCounters.invalidateAll();
+        logger.info("Notification retention ({}): {} read notifications older than {}, {} broadcasts older than {} removed",
+                mode, purged, readMaxAge, broadcastsPurged, broadcastMaxAge);
+        return purged + broadcastsPurged;
+    }
+
+    // Runs batches (one transaction each) until a batch comes back short or the thread is
+    // interrupted (shutdown); committed batches stay, the rest is left for the next run
+    private long purgeAll(Supplier<Integer> batch, AtomicLong total) {
+        long purged = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            Integer n = transactionTemplate.execute(status -> batch.get());
+            int removed = n != null ? n : 0;
+            purged += removed;
+            total.addAndGet(removed);
+            if (removed < batchSize) return purged;
+            pause();
+        }
+        logger.info("Notification retention interrupted after {} rows", purged);
+        return purged;
+    }
+
+    private int purgeBatch(LocalDateTime cutoff) {
+        List<Long> ids = notificationRepository.findReadBefore(cutoff, PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) return 0;
+        if (mode == Mode.ARCHIVE) {
+            archiveRepository.copyFromLive(ids, LocalDateTime.now());
+        }
+        return notificationRepository.deleteAllByIds(ids);
+    }
+
+    private int purgeBroadcastBatch(LocalDateTime cutoff) {
+        List<Long> ids = broadcastRepository.findCreatedBefore(cutoff, PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) return 0;
+        receiptRepository.deleteByBroadcastIds(ids);
+        return broadcastRepository.deleteAllByIds(ids);
+    }
+
+    // Keeps the interrupt flag set so purgeAll stops before the next batch
+    private void pause() {
+        try {
+            Thread.sleep(batchPause.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void refreshTableSizes() {
+        liveRows.set(notificationRepository.count());
+        archivedRows.set(archiveRepository.count());
+    }
+}
@@ -1,79 +1,124 @@
 package com.ntmi.support.service;
 
-import com.ntmi.support.dto.NotificationMsg;
+import com.ntmi.support.dto.NotificationDTO;
+import com.ntmi.support.event.NotificationRequestedEvent;
+import com.ntmi.support.model.BroadcastNotification;
+import com.ntmi.support.model.BroadcastReadMark;
+import com.ntmi.support.model.BroadcastReceipt;
 import com.ntmi.support.model.Notification;
 import com.ntmi.support.model.Role;
 import com.ntmi.support.model.User;
+import com.ntmi.support.repository.BroadcastNotificationRepository;
+import com.ntmi.support.repository.BroadcastReadMarkRepository;
+import com.ntmi.support.repository.BroadcastReceiptRepository;
 import com.ntmi.support.repository.NotificationRepository;
+import com.ntmi.support.repository.NotificationSequenceRepository;
 import com.ntmi.support.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
-import java.util.List;
+import java.time.format.DateTimeParseException;
+import java.util.*;
 
+/**
+ * Entry point for sending notifications.
+ * <p>
+ * Methods only publish a {@link NotificationRequestedEvent}; NotificationDispatcher picks it
+ * up after the caller's transaction commits (nothing is sent if it rolls back) and saves +
+ * pushes it on its own workers, so the request thread never waits for delivery.
+ * <p>
+ * Role-wide messages are stored once as a {@link BroadcastNotification}; the inbox merges a
+ * user's personal notifications with the broadcasts for their role (fan-out on read), and
+ * unread counts are served from {@link NotificationUnreadCounters}. Reading all broadcasts
+ * moves the user's {@link BroadcastReadMark} forward instead of writing a receipt per broadcast.
+ */
 @Service
 public class NotificationService {
 
+    private static final Logger logger = LoggerFactory.getLogger(NotificationService.class);
+
+    public static final int DEFAULT_INBOX_LIMIT = 20;
+    public static final int MAX_INBOX_LIMIT = 100;
+
+    // Keeps IN (...) well under SQL Server's 2100 parameter limit
+    public static final int MAX_BULK_IDS = 1000;
+
+    // Open range bounds (SQL Server datetime2 cannot hold LocalDateTime.MIN / MAX)
+    private static final LocalDateTime BEGINNING_OF_TIME = LocalDateTime.of(1900, 1, 1, 0, 0);
+    private static final LocalDateTime END_OF_TIME = LocalDateTime.of(9999, 1, 1, 0, 0);
+
+    private static final Comparator<NotificationDTO> INBOX_ORDER = Comparator
+            .comparing(NotificationDTO::getCreatedAt, Comparator.reverseOrder())
+            .thenComparing(NotificationDTO::isBroadcast)
+            .thenComparing(NotificationDTO::getId, Comparator.reverseOrder());
+
+    // Receipts for the role's broadcasts in a time range above the user's read watermark
+    // that the user has not read yet (the watermark covers everything below it)
+    private static final String MARK_BROADCASTS_READ_SQL =
+            "INSERT INTO broadcast_receipts (broadcast_id, user_id, read_at, dismissed) " +
+            "SELECT b.id, ?, ?, ? FROM broadcast_notifications b WHERE b.role = ? " +
+            "AND b.created_at >= ? AND b.created_at <= ? AND NOT EXISTS " +
+            "(SELECT 1 FROM broadcast_receipts r WHERE r.broadcast_id = b.id AND r.user_id = ?)";
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Autowired
     private NotificationRepository notificationRepository;
 
+    @Autowired
+    private BroadcastNotificationRepository broadcastRepository;
+
+    @Autowired
+    private BroadcastReceiptRepository receiptRepository;
+
+    @Autowired
+    private BroadcastReadMarkRepository readMarkRepository;
+
     @Autowired
     private UserRepository userRepository;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate; 
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private NotificationUnreadCounters unreadCounters;
+
+    @Autowired
+    private NotificationSequenceRepository sequenceRepository;
 
     /**
-     * CORE METHOD: Saves to DB AND sends Real-Time WebSocket alert.
+     * CORE METHOD: Saves to DB AND sends Real-Time WebSocket alert (asynchronously, after commit).
      */
-    @Transactional
     public void send(User recipient, String title, String message, String type) {
         if (recipient == null) {
-            System.err.println("❌ [NotificationService] Error: Recipient is NULL.");
+            logger.warn("Notification '{}' skipped: recipient is null", title);
             return;
         }
-
-        try {
-            // 1. SAVE TO DATABASE
-            Notification n = new Notification();
-            n.setRecipient(recipient);
-            n.setTitle(title);
-            n.setMessage(message);
-            n.setType(type);
-            n.setRead(false);
-            n.setCreatedAt(LocalDateTime.now());
-
-            notificationRepository.saveAndFlush(n);
-            System.out.println("✅ [DB] Saved Notification ID: " + n.getId() + " for " + recipient.getUsername());
-
-            // 2. PUSH TO WEBSOCKET
-            NotificationMsg wsMsg = new NotificationMsg(title, message);
-            messagingTemplate.convertAndSendToUser(
-                recipient.getUsername(), 
-                "/queue/notifications", 
-                wsMsg
-            );
-
-        } catch (Exception e) {
-            System.err.println("❌ [NotificationService] Failed: " + e.getMessage());
-            e.printStackTrace();
-        }
+        eventPublisher.publishEvent(NotificationRequestedEvent.toUser(
+                recipient.getUserId(), recipient.getUsername(), title, message, type));
     }
 
     /**
      * Helper: Send by Username (Updated to accept 'type')
      */
-    @Transactional
     public void sendPrivateNotification(String username, String title, String message, String type) {
-        User user = userRepository.findByUsername(username).orElse(null);
-        if (user != null) {
-            send(user, title, message, type);
-        } else {
-            System.err.println("❌ User not found for notification: " + username);
-        }
+        eventPublisher.publishEvent(NotificationRequestedEvent.toUser(null, username, title, message, type));
     }
 
     // ✅ Overload for backward compatibility (defaults to "INFO")
@@ -83,23 +128,307 @@ public class NotificationService {
 
     /**
      * Helper: Notify All Admins (Updated to accept 'type')
+     * Stored once as a broadcast and pushed once to /topic/admins, whatever the admin count.
      */
-    @Transactional
     public void notifyAllAdmins(String title, String message, String type) {
-        List<User> admins = userRepository.findByRole(Role.ADMIN);
-        
-        if (admins.isEmpty()) {
-            System.out.println("⚠️ No Admins found to notify.");
-            return;
-        }
-
-        for (User admin : admins) {
-            send(admin, title, message, type);
-        }
+        eventPublisher.publishEvent(NotificationRequestedEvent.toRole(Role.ADMIN, title, message, type));
     }
 
     // ✅ Overload for backward compatibility (defaults to "INFO")
     public void notifyAllAdmins(String title, String message) {
         notifyAllAdmins(title, message, "INFO");
     }
-}
\ No newline at end of file
+
+    /**
+     * Ticket reply to one user. Replies on the same ticket within the coalescing window
+     * arrive as one "N new replies on Ticket #X" notification.
+     */
+    public void notifyTicketReply(String username, Long ticketId, String title, String message) {
+        eventPublisher.publishEvent(NotificationRequestedEvent.toUser(null, username, title, message, "INFO")
+                .coalescing(replyKey(ticketId), replySummary(ticketId)));
+    }
+
+    // Same, for an unassigned ticket (all admins)
+    public void notifyAdminsTicketReply(Long ticketId, String title, String message) {
+        eventPublisher.publishEvent(NotificationRequestedEvent.toRole(Role.ADMIN, title, message, "INFO")
+                .coalescing(replyKey(ticketId), replySummary(ticketId)));
+    }
+
+    private String replyKey(Long ticketId) {
+        return "ticket:" + ticketId + ":replies";
+    }
+
+    private String replySummary(Long ticketId) {
+        return "new replies on Ticket #" + ticketId;
+    }
+
+    // --- Inbox (personal + role broadcasts) ---
+
+    /**
+     * One page of the merged inbox, newest first: personal and broadcast items ordered by
+     * createdAt DESC, then personal before broadcast, then id DESC. Each source is read with a
+     * keyset query on its (recipient|role, created_at, id) index, at most limit + 1 rows each.
+     * The cursor is the last item of the previous page: "createdAt~P|B~id". The first page also
+     * carries the user's current lastSeq.
+     */
+    public Map<String, Object> getInboxPage(Long userId, String cursor, int limit) {
+        int pageSize = Math.min(Math.max(limit, 1), MAX_INBOX_LIMIT);
+        InboxCursor after = cursor == null || cursor.isBlank() ? null : InboxCursor.parse(cursor);
+        Role role = userRepository.findById(userId).map(User::getRole).orElse(null);
+
+        // Same timestamp as the cursor: personal items come first, so after a broadcast
+        // cursor no personal item of that instant is left, and after a personal one all broadcasts are
+        LocalDateTime before = after != null ? after.createdAt : END_OF_TIME;
+        long personalBeforeId = after == null ? Long.MAX_VALUE : after.broadcast ? Long.MIN_VALUE : after.id;
+        long broadcastBeforeId = after == null || !after.broadcast ? Long.MAX_VALUE : after.id;
+
+        List<NotificationDTO> merged = new ArrayList<>(notificationRepository.findInboxPage(
+                userId, before, personalBeforeId, PageRequest.of(0, pageSize + 1)));
+        if (role != null) {
+            merged.addAll(broadcastRepository.findInboxPage(
+                    role, userId, before, broadcastBeforeId, PageRequest.of(0, pageSize + 1)));
+        }
+        merged.sort(INBOX_ORDER);
+
+        List<NotificationDTO> items = merged.size() > pageSize ? merged.subList(0, pageSize) : merged;
+        Map<String, Object> page = new HashMap<>();
+        page.put("items", items);
+        page.put("nextCursor", merged.size() > pageSize ? InboxCursor.of(items.get(items.size() - 1)).encode() : null);
+        if (after == null) {
+            // Replay starting point for the client's WebSocket (see NotificationReplayBuffer)
+            page.put("lastSeq", sequenceRepository.findLastSeq(userId).orElse(0L));
+        }
+        return page;
+    }
+
+    public long getUnreadCount(Long userId) {
+        return unreadCounters.get(userId);
+    }
+
+    // Returns the notification, or null if it does not exist
+    public Notification markRead(Long id) {
+        // Recipient first: a concurrent delete may remove the row right after the update
+        Long userId = notificationRepository.findById(id).map(n -> n.getRecipient().getUserId()).orElse(null);
+        if (userId == null) return null;
+        Integer changed = transactionTemplate.execute(status -> notificationRepository.markRead(id));
+        if (changed != null && changed > 0) unreadCounters.markedRead(userId, changed);
+        return notificationRepository.findById(id).orElse(null);
+    }
+
+    // The badge drops only when this request's delete removed the row while it was unread, so a
+    // concurrent markRead or a second delete of the same id never decrements it twice
+    public void delete(Long id) {
+        Notification n = notificationRepository.findById(id).orElse(null);
+        if (n == null) return;
+        Long userId = n.getRecipient().getUserId();
+        Boolean removedUnread = transactionTemplate.execute(status -> {
+            if (notificationRepository.deleteIfUnread(id) == 1) return true;
+            notificationRepository.deleteOne(id);
+            return false;
+        });
+        // The template has committed here
+        if (Boolean.TRUE.equals(removedUnread)) unreadCounters.markedRead(userId, 1);
+    }
+
+    // --- Bulk operations (set-based: one statement per source, whatever the inbox size) ---
+
+    /**
+     * Marks every personal notification and role broadcast of the user as read.
+     *
+     * @return number of notifications that were unread
+     */
+    public int markAllRead(Long userId) {
+        ensureReadMark(userId);
+        Integer marked = transactionTemplate.execute(status ->
+                notificationRepository.markAllRead(userId) + markBroadcastsRead(userId, BEGINNING_OF_TIME, END_OF_TIME));
+        unreadCounters.reset(userId);
+        return marked != null ? marked : 0;
+    }
+
+    /**
+     * Marks the user's notifications created within [from, to] as read (either bound may be null).
+     *
+     * @return number of notifications that were unread
+     */
+    public int markReadBetween(Long userId, LocalDateTime from, LocalDateTime to) {
+        LocalDateTime start = from != null ? from : BEGINNING_OF_TIME;
+        LocalDateTime end = to != null ? to : END_OF_TIME;
+        if (start.isAfter(end)) throw new IllegalArgumentException("'from' must not be after 'to'");
+
+        ensureReadMark(userId);
+        Integer marked = transactionTemplate.execute(status ->
+                notificationRepository.markReadBetween(userId, start, end) + markBroadcastsRead(userId, start, end));
+        int count = marked != null ? marked : 0;
+        unreadCounters.markedRead(userId, count);
+        return count;
+    }
+
+    /**
+     * Counts every broadcast of the user's role created up to the given time as read, e.g. for a
+     * new user (or a new role) so the role's earlier broadcasts do not arrive as unread.
+     */
+    public void markBroadcastsReadUpTo(Long userId, LocalDateTime upTo) {
+        ensureReadMark(userId);
+        transactionTemplate.executeWithoutResult(status -> readMarkRepository.advance(userId, upTo));
+        unreadCounters.invalidate(userId);
+    }
+
+    /**
+     * Deletes the given personal notifications of the user, or all read ones when onlyRead is set.
+     * Broadcasts are not affected (they are dismissed per user instead).
+     *
+     * @return number of rows deleted
+     */
+    @Transactional
+    public int deleteNotifications(Long userId, Collection<Long> ids, boolean onlyRead) {
+        int deleted;
+        if (onlyRead) {
+            deleted = notificationRepository.deleteAllRead(userId);
+        } else {
+            if (ids == null || ids.isEmpty()) return 0;
+            if (ids.size() > MAX_BULK_IDS) throw new IllegalArgumentException("At most " + MAX_BULK_IDS + " ids per request");
+            deleted = notificationRepository.deleteByIds(userId, ids);
+            // Some of them may have been unread: recount instead of reading the rows first
+            afterCommit(() -> unreadCounters.invalidate(userId));
+        }
+        return deleted;
+    }
+
+    // Returns false if the broadcast does not exist or is not addressed to the user's role
+    public boolean markBroadcastRead(Long broadcastId, Long userId) {
+        BroadcastNotification broadcast = findAddressedTo(broadcastId, userId);
+        if (broadcast == null) return false;
+        if (updateReceipt(broadcast, userId, false)) unreadCounters.markedRead(userId, 1);
+        return true;
+    }
+
+    // Hides the broadcast from this user's inbox only
+    public boolean dismissBroadcast(Long broadcastId, Long userId) {
+        BroadcastNotification broadcast = findAddressedTo(broadcastId, userId);
+        if (broadcast == null) return false;
+        if (updateReceipt(broadcast, userId, true)) unreadCounters.markedRead(userId, 1);
+        return true;
+    }
+
+    // Receipts only for broadcasts the user actually receives (no stray rows, no badge drift)
+    private BroadcastNotification findAddressedTo(Long broadcastId, Long userId) {
+        Role role = userRepository.findById(userId).map(User::getRole).orElse(null);
+        if (role == null) return null;
+        return broadcastRepository.findById(broadcastId)
+                .filter(b -> b.getRole() == role)
+                .orElse(null);
+    }
+
+    /**
+     * Marks the role's broadcasts in [from, to] read. When the range reaches back to the user's
+     * watermark, the watermark moves to the end of the range (capped at now, so later broadcasts
+     * stay unread) and no rows are written per broadcast; otherwise only that range gets receipts.
+     * Runs inside the caller's transaction; the user's mark row must exist (see ensureReadMark).
+     */
+    private int markBroadcastsRead(Long userId, LocalDateTime from, LocalDateTime to) {
+        User user = userRepository.findById(userId).orElse(null);
+        if (user == null || user.getRole() == null) return 0;
+
+        LocalDateTime readBefore = readMarkRepository.findReadBefore(userId).orElse(BEGINNING_OF_TIME);
+        LocalDateTime now = LocalDateTime.now();
+        if (!from.isAfter(readBefore)) {
+            LocalDateTime upTo = to.isBefore(now) ? to : now;
+            if (!upTo.isAfter(readBefore)) return 0;
+            int unread = (int) broadcastRepository.countUnreadBetween(user.getRole(), userId, readBefore, upTo);
+            readMarkRepository.advance(userId, upTo);
+            return unread;
+        }
+        return jdbcTemplate.update(MARK_BROADCASTS_READ_SQL,
+                userId, Timestamp.valueOf(now), false, user.getRole().name(),
+                Timestamp.valueOf(from), Timestamp.valueOf(to), userId);
+    }
+
+    // Creates the user's watermark row if missing, in its own transaction. Users created before
+    // watermarks existed start at the beginning of time: their receipts alone say what is read.
+    private void ensureReadMark(Long userId) {
+        if (readMarkRepository.existsById(userId)) return;
+        try {
+            transactionTemplate.executeWithoutResult(status -> readMarkRepository.insertMark(userId, BEGINNING_OF_TIME));
+        } catch (DataIntegrityViolationException e) {
+            logger.debug("Broadcast read mark for user {} already exists", userId);
+        }
+    }
+
+    // Creates / updates the user's receipt. Returns true if the broadcast was unread before.
+    private boolean updateReceipt(BroadcastNotification broadcast, Long userId, boolean dismiss) {
+        Long broadcastId = broadcast.getId();
+        try {
+            Boolean wasUnread = transactionTemplate.execute(status -> {
+                boolean belowMark = readMarkRepository.findReadBefore(userId)
+                        .map(readBefore -> !broadcast.getCreatedAt().isAfter(readBefore))
+                        .orElse(false);
+                Optional<BroadcastReceipt> existing = receiptRepository.findByBroadcastIdAndUserId(broadcastId, userId);
+                // Already read through the watermark: a plain read needs no row
+                if (belowMark && !dismiss && existing.isEmpty()) return false;
+
+                BroadcastReceipt receipt = existing.orElseGet(() -> {
+                    BroadcastReceipt fresh = new BroadcastReceipt();
+                    fresh.setBroadcastId(broadcastId);
+                    fresh.setUserId(userId);
+                    return fresh;
+                });
+                boolean unread = receipt.getReadAt() == null && !belowMark;
+                if (receipt.getReadAt() == null) receipt.setReadAt(LocalDateTime.now());
+                if (dismiss) receipt.setDismissed(true);
+                receiptRepository.saveAndFlush(receipt);
+                return unread;
+            });
+            return Boolean.TRUE.equals(wasUnread);
+        } catch (DataIntegrityViolationException e) {
+            // Same receipt created concurrently (double click); the other request wins and counts it
+            logger.debug("Receipt for broadcast {} / user {} already exists", broadcastId, userId);
+            return false;
+        }
+    }
+
+    // Runs the action after the surrounding transaction commits (immediately when there is none)
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static class InboxCursor {
+        final LocalDateTime createdAt;
+        final boolean broadcast;
+        final long id;
+
+        InboxCursor(LocalDateTime createdAt, boolean broadcast, long id) {
+            this.createdAt = createdAt;
+            this.broadcast = broadcast;
+            this.id = id;
+        }
+
+        static InboxCursor of(NotificationDTO n) {
+            return new InboxCursor(n.getCreatedAt(), n.isBroadcast(), n.getId());
+        }
+
+        static InboxCursor parse(String value) {
+            String[] parts = value.split("~");
+            if (parts.length != 3 || !(parts[1].equals("P") || parts[1].equals("B"))) {
+                throw new IllegalArgumentException("Invalid cursor: " + value);
+            }
+            try {
+                return new InboxCursor(LocalDateTime.parse(parts[0]), parts[1].equals("B"), Long.parseLong(parts[2]));
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + value);
+            }
+        }
+
+        String encode() {
+            return createdAt + "~" + (broadcast ? "B" : "P") + "~" + id;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.ntmi.support.service;
+
+import com.ntmi.support.model.Role;
+import com.ntmi.support.model.User;
+import com.ntmi.support.repository.BroadcastNotificationRepository;
+import com.ntmi.support.repository.NotificationRepository;
+import com.ntmi.support.repository.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-user unread notification counts (personal + broadcasts), served from memory.
+ * <p>
+ * A user's count is loaded from the database on first request (two indexed counts) and then
+ * kept current by the write paths: new notifications, read, dismiss, delete, read-all. Each
+ * change is pushed to the user on /user/queue/unread. Entries are reloaded after the TTL, which
+ * also corrects any drift (e.g. writes made by another node).
+ * <p>
+ * Callers apply changes after their transaction commits.
+ */
+@Component
+public class NotificationUnreadCounters {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationUnreadCounters.class);
+
+    @Autowired private NotificationRepository notificationRepository;
+    @Autowired private BroadcastNotificationRepository broadcastRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private SimpMessagingTemplate messagingTemplate;
+
+    @Value("${notifications.unread.ttl:5m}")
+    private Duration ttl;
+
+    private final Map<Long, Entry> byUserId = new ConcurrentHashMap<>();
+    private final Map<String, Long> userIdByUsername = new ConcurrentHashMap<>();
+
+    @Autowired
+    public void registerMetrics(MeterRegistry registry) {
+        Gauge.builder("notifications.unread.cached_users", byUserId, Map::size).register(registry);
+    }
+
+    // --- Reads ---
+
+    public long get(Long userId) {
+        Entry e = byUserId.get(userId);
+        if (e == null || System.nanoTime() - e.loadedAt > ttl.toNanos()) {
+            e = load(userId);
+        }
+        return e == null ? 0 : e.unread;
+    }
+
+    // --- Changes (call after commit) ---
+
+    public void userNotified(String username) {
+        Long userId = userIdByUsername.get(username);
+        if (userId != null) adjust(userId, 1);
+    }
+
+    // A broadcast is unread for every user of the role
+    public void roleNotified(Role role) {
+        byUserId.values().stream()
+                .filter(e -> e.role == role)
+                .forEach(e -> adjust(e.userId, 1));
+    }
+
+    public void markedRead(Long userId, int count) {
+        if (count > 0) adjust(userId, -count);
+    }
+
+    public void reset(Long userId) {
+        Entry e = byUserId.get(userId);
+        if (e == null) return;
+        synchronized (e) {
+            e.unread = 0;
+        }
+        push(e);
+    }
+
+    // Unknown effect (bulk operations): recount on next read and push the fresh value
+    public void invalidate(Long userId) {
+        Entry e = byUserId.remove(userId);
+        if (e != null) push(load(userId));
+    }
+
+    // Bulk removals across users (retention): recount every cached user
+    public void invalidateAll() {
+        new ArrayList<>(byUserId.keySet()).forEach(this::invalidate);
+    }
+
+    // --- Internals ---
+
+    private Entry load(Long userId) {
+        User user = userRepository.findById(userId).orElse(null);
+        if (user == null) return null;
+
+        long unread = notificationRepository.countByRecipient_UserIdAndIsReadFalse(userId);
+        if (user.getRole() != null) {
+            unread += broadcastRepository.countUnread(user.getRole(), userId);
+        }
+        Entry e = new Entry(userId, user.getUsername(), user.getRole(), unread);
+        byUserId.put(userId, e);
+        userIdByUsername.put(user.getUsername(), userId);
+        return e;
+    }
+
+    private void adjust(Long userId, long delta) {
+        Entry e = byUserId.get(userId);
+        if (e == null) return; // not loaded: the next read counts from the database
+        synchronized (e) {
+            e.unread = Math.max(0, e.unread + delta);
+        }
+        push(e);
+    }
+
+    private void push(Entry e) {
+        if (e == null) return;
+        try {
+            messagingTemplate.convertAndSendToUser(e.username, "/queue/unread", Map.of("unread", e.unread));
+        } catch (Exception ex) {
+            logger.debug("Unread count push to {} failed: {}", e.username, ex.getMessage());
+        }
+    }
+
+    private static final class Entry {
+        final Long userId;
+        final String username;
+        final Role role;
+        final long loadedAt = System.nanoTime();
+        volatile long unread;
+
+        Entry(Long userId, String username, Role role, long unread) {
+            this.userId = userId;
+            this.username = username;
+            this.role = role;
+            this.unread = unread;
+        }
+    }
+}
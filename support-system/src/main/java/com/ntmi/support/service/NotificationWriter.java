@@ -0,0 +1,118 @@
+package com.ntmi.support.service;
+
+import com.ntmi.support.dto.NotificationDTO;
+import com.ntmi.support.event.NotificationRequestedEvent;
+import com.ntmi.support.model.BroadcastNotification;
+import com.ntmi.support.model.Notification;
+import com.ntmi.support.model.Role;
+import com.ntmi.support.model.User;
+import com.ntmi.support.repository.BroadcastNotificationRepository;
+import com.ntmi.support.repository.NotificationRepository;
+import com.ntmi.support.repository.NotificationSequenceRepository;
+import com.ntmi.support.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Persists notification rows. Called by NotificationDispatcher on its worker threads;
+ * the WebSocket push happens in the dispatcher once this transaction has committed.
+ */
+@Service
+public class NotificationWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationWriter.class);
+
+    // Push targets starting with this are broker topics, anything else is a username
+    public static final String TOPIC_PREFIX = "/topic/";
+
+    @Autowired private NotificationRepository notificationRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private BroadcastNotificationRepository broadcastRepository;
+    @Autowired private NotificationSequenceRepository sequenceRepository;
+
+    /**
+     * Saves the notification row(s).
+     * <p>
+     * REQUIRES_NEW: under the CALLER_RUNS overflow policy this runs inside the publisher's
+     * after-commit callback, where the finished transaction's resources are still bound.
+     *
+     * @return push targets (username, or the role topic for a broadcast; none when there is no
+     *         recipient) and, for a personal notification, the saved item with its sequence number
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public Delivery persist(NotificationRequestedEvent event) {
+        // 1. Role broadcast: one row whatever the number of recipients, one topic push
+        if (event.getRole() != null) {
+            BroadcastNotification b = new BroadcastNotification();
+            b.setRole(event.getRole());
+            b.setTitle(event.getTitle());
+            b.setMessage(event.getMessage());
+            b.setType(event.getType());
+            b.setCreatedAt(LocalDateTime.now());
+            broadcastRepository.save(b);
+            return new Delivery(List.of(topicFor(event.getRole())), null, null);
+        }
+
+        // 2. Single recipient (by id when known, avoids loading the user)
+        User recipient;
+        String username = event.getRecipientUsername();
+        if (event.getRecipientId() != null) {
+            recipient = userRepository.getReferenceById(event.getRecipientId());
+        } else {
+            recipient = username != null ? userRepository.findByUsername(username).orElse(null) : null;
+        }
+        if (recipient == null) {
+            logger.warn("User not found for notification '{}': {}", event.getTitle(), username);
+            return new Delivery(List.of(), null, null);
+        }
+
+        Notification n = new Notification();
+        n.setRecipient(recipient);
+        n.setTitle(event.getTitle());
+        n.setMessage(event.getMessage());
+        n.setType(event.getType());
+        n.setRead(false);
+        n.setCreatedAt(LocalDateTime.now());
+        n.setSeq(nextSeq(recipient.getUserId()));
+        notificationRepository.save(n);
+
+        NotificationDTO item = new NotificationDTO(n.getId(), false, n.getTitle(), n.getMessage(), n.getType(),
+                false, n.getCreatedAt(), n.getSeq());
+        return new Delivery(List.of(username != null ? username : recipient.getUsername()), recipient.getUserId(), item);
+    }
+
+    // Next per-user sequence number. The first notification of a user creates the row; a
+    // concurrent first insert fails on the primary key and the dispatcher retries the job.
+    private long nextSeq(Long userId) {
+        if (sequenceRepository.increment(userId) == 0) {
+            sequenceRepository.insertFirst(userId);
+            return 1;
+        }
+        return sequenceRepository.findLastSeq(userId).orElseThrow();
+    }
+
+    public static final class Delivery {
+        public final List<String> targets;
+        // Personal notification only
+        public final Long userId;
+        public final NotificationDTO item;
+
+        Delivery(List<String> targets, Long userId, NotificationDTO item) {
+            this.targets = targets;
+            this.userId = userId;
+            this.item = item;
+        }
+    }
+
+    // e.g. ADMIN -> /topic/admins, BRANCH_USER -> /topic/branch-users
+    public static String topicFor(Role role) {
+        return TOPIC_PREFIX + role.name().toLowerCase().replace('_', '-') + "s";
+    }
+}
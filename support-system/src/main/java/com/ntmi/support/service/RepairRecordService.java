@@ -0,0 +1,123 @@
+package com.ntmi.support.service;
+
+import com.ntmi.support.model.Asset;
+import com.ntmi.support.model.RepairCostLedger;
+import com.ntmi.support.model.RepairRecord;
+import com.ntmi.support.model.Ticket;
+import com.ntmi.support.repository.AssetRepository;
+import com.ntmi.support.repository.RepairCostLedgerRepository;
+import com.ntmi.support.repository.RepairRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes repair records and keeps derived totals in step with them:
+ * the monthly cost ledger and the asset's repair_count / total_repair_cost.
+ */
+@Service
+public class RepairRecordService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RepairRecordService.class);
+
+    @Autowired private RepairRecordRepository repairRecordRepository;
+    @Autowired private RepairCostLedgerRepository ledgerRepository;
+    @Autowired private AssetRepository assetRepository;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    // Action text of the record written when a ticket close disposes the asset
+    public static final String DISPOSAL_PREFIX = "ASSET DISPOSED: ";
+
+    // --- 1. Create a repair record (+ ledger row + asset totals) ---
+
+    // repair_count counts repaired closes (with or without a resolution text), not disposals
+    public RepairRecord createRepairRecord(Asset asset, Ticket ticket, String action, BigDecimal cost, boolean disposal) {
+        int repairs = disposal ? 0 : 1;
+        if (action == null || action.isEmpty()) {
+            if (repairs > 0) {
+                transactionTemplate.executeWithoutResult(status ->
+                        assetRepository.addRepair(asset.getAssetId(), BigDecimal.ZERO, repairs));
+            }
+            return null;
+        }
+
+        RepairRecord record = new RepairRecord();
+        record.setAsset(asset);
+        record.setTicket(ticket);
+        record.setActionTaken(action);
+        record.setRepairDate(LocalDate.now());
+        record.setCost(cost != null ? cost : BigDecimal.ZERO);
+
+        // Record and ledger commit together. Retry once if another node inserted the month row first.
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> {
+                    RepairRecord saved = repairRecordRepository.save(record);
+                    assetRepository.addRepair(asset.getAssetId(), saved.getCost(), repairs);
+                    addToLedger(saved);
+                    return saved;
+                });
+            } catch (DataIntegrityViolationException e) {
+                if (attempt == 2) throw e;
+                record.setId(null);
+            }
+        }
+    }
+
+    private void addToLedger(RepairRecord record) {
+        Long branchId = record.getAsset().getBranch().getBranchId();
+        Long assetId = record.getAsset().getAssetId();
+        LocalDate month = record.getRepairDate().withDayOfMonth(1);
+
+        if (ledgerRepository.increment(branchId, assetId, month, record.getCost()) == 0) {
+            RepairCostLedger row = new RepairCostLedger();
+            row.setBranchId(branchId);
+            row.setAssetId(assetId);
+            row.setLedgerMonth(month);
+            row.setTotalCost(record.getCost());
+            row.setRepairCount(1);
+            ledgerRepository.saveAndFlush(row);
+        }
+    }
+
+    // --- 2. Rebuild the ledger from repair history ---
+
+    @Transactional
+    public int rebuildLedger() {
+        ledgerRepository.deleteAllRows();
+
+        List<RepairCostLedger> rows = new ArrayList<>();
+        for (Object[] r : repairRecordRepository.sumCostsByBranchAssetMonth()) {
+            RepairCostLedger row = new RepairCostLedger();
+            row.setBranchId((Long) r[0]);
+            row.setAssetId((Long) r[1]);
+            row.setLedgerMonth(LocalDate.of(((Number) r[2]).intValue(), ((Number) r[3]).intValue(), 1));
+            row.setTotalCost(r[4] != null ? (BigDecimal) r[4] : BigDecimal.ZERO);
+            row.setRepairCount((Long) r[5]);
+            rows.add(row);
+        }
+        ledgerRepository.saveAll(rows);
+
+        logger.info("Rebuilt repair cost ledger: {} rows", rows.size());
+        return rows.size();
+    }
+
+    // First start after this table was introduced: populate it from history
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildLedgerIfEmpty() {
+        if (ledgerRepository.count() == 0 && repairRecordRepository.count() > 0) {
+            transactionTemplate.execute(status -> rebuildLedger());
+        }
+    }
+}
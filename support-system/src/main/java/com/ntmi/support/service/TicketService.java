@@ -1,9 +1,11 @@
 package com.ntmi.support.service;
 
 import com.ntmi.support.dto.TicketDTO;
+import com.ntmi.support.event.BranchDataChangedEvent;
 import com.ntmi.support.model.*;
 import com.ntmi.support.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,6 +21,9 @@ public class TicketService {
     @Autowired private ErrorTypeRepository typeRepository;
     @Autowired private TicketImageRepository ticketImageRepository;
     @Autowired private AssetRepository assetRepository;
+    @Autowired private ApplicationEventPublisher eventPublisher;
+    @Autowired private AssetStatusCounters assetStatusCounters;
+    @Autowired private FailureStatsService failureStatsService;
 
     @Transactional
     public Ticket createTicket(TicketDTO dto, Long userId) {
@@ -85,7 +90,9 @@ public class TicketService {
     }
 
 
-        return ticketRepository.save(savedTicket);
+        Ticket created = saveAndPublish(savedTicket, null);
+        failureStatsService.recordFailure(created);
+        return created;
     }
 
     // ... (Keep existing methods: cancelTicket, getAllTickets, etc.) ...
@@ -98,30 +105,43 @@ public class TicketService {
     public Ticket startTicket(Long ticketId, Long adminId) {
         Ticket ticket = ticketRepository.findById(ticketId).orElseThrow();
         User admin = userRepository.findById(adminId).orElseThrow();
+        TicketStatus previous = ticket.getStatus();
         ticket.setStatus(TicketStatus.IN_PROGRESS);
         ticket.setAssignedAdmin(admin);
-        return ticketRepository.save(ticket);
+        return saveAndPublish(ticket, previous);
     }
 
     public Ticket closeTicket(Long ticketId, Long adminId) {
         Ticket ticket = ticketRepository.findById(ticketId).orElseThrow();
+        TicketStatus previous = ticket.getStatus();
         ticket.setStatus(TicketStatus.RESOLVED);
         ticket.setClosedAt(LocalDateTime.now());
-        return ticketRepository.save(ticket);
+        return saveAndPublish(ticket, previous);
     }
     
     public Ticket cancelTicket(Long ticketId, Long userId) {
         Ticket ticket = ticketRepository.findById(ticketId).orElseThrow();
         if(!ticket.getCreatedBy().getUserId().equals(userId)) throw new RuntimeException("Unauthorized");
+        TicketStatus previous = ticket.getStatus();
         ticket.setStatus(TicketStatus.CANCELLED);
         ticket.setClosedAt(LocalDateTime.now());
-        return ticketRepository.save(ticket);
+        return saveAndPublish(ticket, previous);
     }
     
     public Ticket updateStatus(Long ticketId, TicketStatus status) {
         Ticket ticket = ticketRepository.findById(ticketId).orElseThrow();
+        TicketStatus previous = ticket.getStatus();
         ticket.setStatus(status);
         if(status == TicketStatus.RESOLVED || status == TicketStatus.CLOSED) ticket.setClosedAt(LocalDateTime.now());
-        return ticketRepository.save(ticket);
+        return saveAndPublish(ticket, previous);
+    }
+
+    // Save, update the open-ticket asset counters and tell caches that this branch's ticket data changed
+    private Ticket saveAndPublish(Ticket ticket, TicketStatus previous) {
+        Ticket saved = ticketRepository.save(ticket);
+        assetStatusCounters.ticketStatusChanged(saved, previous);
+        Long branchId = saved.getBranch() != null ? saved.getBranch().getBranchId() : null;
+        eventPublisher.publishEvent(new BranchDataChangedEvent(branchId, "TICKET"));
+        return saved;
     }
 }
\ No newline at end of file
@@ -3,12 +3,14 @@ package com.ntmi.support.service;
 import com.ntmi.support.model.User;
 import com.ntmi.support.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,6 +23,11 @@ public class UserService implements UserDetailsService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    // Lazy: the notification beans reach back to this service through the WebSocket auth interceptor
+    @Autowired
+    @Lazy
+    private NotificationService notificationService;
+
     // --- 1. Spring Security Login ---
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
@@ -49,7 +56,10 @@ public class UserService implements UserDetailsService {
         }
         // Encode password
         user.setPassword(passwordEncoder.encode(user.getPassword()));
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        // Broadcasts sent to the role before the user existed are not unread for them
+        notificationService.markBroadcastsReadUpTo(saved.getUserId(), LocalDateTime.now());
+        return saved;
     }
 
     // UPDATE (Admin)
@@ -57,6 +67,7 @@ public class UserService implements UserDetailsService {
         User existing = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
+        boolean roleChanged = existing.getRole() != updatedInfo.getRole();
         existing.setFullName(updatedInfo.getFullName());
         existing.setEmail(updatedInfo.getEmail());
         existing.setRole(updatedInfo.getRole());
@@ -67,7 +78,10 @@ public class UserService implements UserDetailsService {
             existing.setPassword(passwordEncoder.encode(updatedInfo.getPassword()));
         }
 
-        return userRepository.save(existing);
+        User saved = userRepository.save(existing);
+        // Same for the new role's earlier broadcasts
+        if (roleChanged) notificationService.markBroadcastsReadUpTo(id, LocalDateTime.now());
+        return saved;
     }
 
     // CHANGE PASSWORD (Self Service)
@@ -0,0 +1,190 @@
+package com.ntmi.support.service;
+
+import com.ntmi.support.model.AssetStatus;
+import com.ntmi.support.model.Role;
+import com.ntmi.support.model.User;
+import com.ntmi.support.model.WarrantyWatch;
+import com.ntmi.support.repository.AssetRepository;
+import com.ntmi.support.repository.UserRepository;
+import com.ntmi.support.repository.WarrantyWatchRepository;
+import com.ntmi.support.scheduler.ClusterJobLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the warranty watchlist table current and announces threshold crossings.
+ * <p>
+ * Each run does one indexed range scan (warranty_expiry &lt; today + 30, status filtered in
+ * SQL), diffs it against the stored watchlist, and records for every asset the lowest
+ * threshold (30 / 7 / 0 days) it has reached. Assets that crossed a new threshold since
+ * the last run are collected into one digest notification per branch. Disposed assets are
+ * listed but not announced, and the first fill of an empty table only seeds the rows.
+ */
+@Service
+public class WarrantyAlertService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WarrantyAlertService.class);
+
+    // Alert thresholds in days before expiry, widest first
+    public static final int[] THRESHOLDS = {30, 7, 0};
+
+    // Statuses the watchlist covers (same as the original warranty-risk view)
+    public static final Set<AssetStatus> WATCHED_STATUSES = EnumSet.of(AssetStatus.REPAIR, AssetStatus.DISPOSED);
+
+    private static final int DIGEST_MAX_CODES = 10;
+
+    @Autowired private AssetRepository assetRepository;
+    @Autowired private WarrantyWatchRepository watchRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private NotificationService notificationService;
+    @Autowired private TransactionTemplate transactionTemplate;
+    @Autowired private ClusterJobLock jobLock;
+
+    // --- 1. Read (watchlist endpoint) ---
+
+    public List<WarrantyWatch> getWatchlist(Long branchId) {
+        return watchRepository.findWatchlist(branchId);
+    }
+
+    // --- 2. Scheduled refresh + digests ---
+
+    @Scheduled(cron = "${warranty.alerts.cron:0 0 * * * *}")
+    public void scheduledRefresh() {
+        // One node only, or every node would send its own digests
+        jobLock.runExclusively("warranty-alerts", this::refreshAndNotify);
+    }
+
+    // First start after the table was introduced: fill it without waiting for the schedule.
+    // Nothing is announced: the rows only record where each asset stands today.
+    @EventListener(ApplicationReadyEvent.class)
+    public void refreshIfEmpty() {
+        if (watchRepository.count() == 0) {
+            jobLock.runExclusively("warranty-alerts", () -> transactionTemplate.execute(status -> refresh(LocalDate.now(), false)));
+        }
+    }
+
+    /**
+     * Refreshes the watchlist, then sends digests for new crossings (after the commit).
+     *
+     * @return number of assets that crossed a threshold in this run
+     */
+    public int refreshAndNotify() {
+        List<WarrantyWatch> crossed = transactionTemplate.execute(status -> refresh(LocalDate.now(), true));
+        if (crossed == null || crossed.isEmpty()) return 0;
+
+        Map<Long, List<WarrantyWatch>> byBranch = crossed.stream()
+                .filter(w -> w.getBranchId() != null)
+                .collect(Collectors.groupingBy(WarrantyWatch::getBranchId, TreeMap::new, Collectors.toList()));
+
+        // 1. One digest per branch to that branch's users
+        byBranch.forEach((branchId, items) -> {
+            String title = "Warranty Alert: " + items.get(0).getBranchName();
+            String message = digest(items);
+            for (User user : userRepository.findByBranch_BranchIdAndRole(branchId, Role.BRANCH_USER)) {
+                notificationService.send(user, title, message, "WARNING");
+            }
+        });
+
+        // 2. One summary for admins covering every branch
+        String summary = byBranch.values().stream()
+                .map(items -> items.get(0).getBranchName() + ": " + items.size())
+                .collect(Collectors.joining(", "));
+        notificationService.notifyAllAdmins("Warranty Alert",
+                crossed.size() + " asset(s) crossed a warranty threshold (" + summary + ")", "WARNING");
+
+        return crossed.size();
+    }
+
+    /**
+     * Re-syncs the watchlist with the assets table.
+     *
+     * @param announce false to only seed the rows (no alerts)
+     * @return rows whose threshold moved to a lower bucket (new alerts)
+     */
+    List<WarrantyWatch> refresh(LocalDate today, boolean announce) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, WarrantyWatch> existing = new HashMap<>();
+        for (WarrantyWatch w : watchRepository.findAll()) {
+            existing.put(w.getAssetId(), w);
+        }
+
+        List<WarrantyWatch> upserts = new ArrayList<>();
+        List<WarrantyWatch> crossed = new ArrayList<>();
+
+        for (Object[] r : assetRepository.findWarrantyCandidates(today.plusDays(THRESHOLDS[0] + 1), WATCHED_STATUSES)) {
+            Long assetId = (Long) r[0];
+            WarrantyWatch w = existing.remove(assetId);
+            if (w == null) {
+                w = new WarrantyWatch();
+                w.setAssetId(assetId);
+            }
+            w.setAssetCode((String) r[1]);
+            w.setBrand((String) r[2]);
+            w.setModel((String) r[3]);
+            w.setStatus((AssetStatus) r[4]);
+            w.setWarrantyExpiry((LocalDate) r[5]);
+            w.setBranchId((Long) r[6]);
+            w.setBranchName((String) r[7]);
+            w.setRefreshedAt(now);
+
+            long daysLeft = ChronoUnit.DAYS.between(today, w.getWarrantyExpiry());
+            int threshold = thresholdFor(daysLeft);
+            // An extended warranty moves the asset back up; it is announced again when it comes back down.
+            // A new row is a crossing only if the warranty is still running (an asset that enters the
+            // list long expired, e.g. on a status change, is just recorded). Disposed assets stay on
+            // the watchlist but are never announced.
+            boolean movedDown = w.getAlertedThreshold() == null ? daysLeft >= 0 : threshold < w.getAlertedThreshold();
+            if (announce && movedDown && w.getStatus() != AssetStatus.DISPOSED) {
+                crossed.add(w);
+            }
+            w.setAlertedThreshold(threshold);
+            upserts.add(w);
+        }
+
+        watchRepository.saveAll(upserts);
+        // Status changed or warranty extended beyond the window
+        watchRepository.deleteAllInBatch(existing.values());
+
+        logger.info("Warranty watchlist refreshed: {} assets, {} removed, {} new alerts",
+                upserts.size(), existing.size(), crossed.size());
+        return crossed;
+    }
+
+    // --- Helpers ---
+
+    // Lowest threshold the asset has reached (daysLeft is within the window)
+    static int thresholdFor(long daysLeft) {
+        int reached = THRESHOLDS[0];
+        for (int t : THRESHOLDS) {
+            if (daysLeft <= t) reached = t;
+        }
+        return reached;
+    }
+
+    private String digest(List<WarrantyWatch> items) {
+        Map<Integer, List<String>> codes = new TreeMap<>();
+        for (WarrantyWatch w : items) {
+            codes.computeIfAbsent(w.getAlertedThreshold(), k -> new ArrayList<>()).add(w.getAssetCode());
+        }
+        List<String> parts = new ArrayList<>();
+        codes.forEach((threshold, list) -> {
+            String label = threshold == 0 ? "Expired" : "Within " + threshold + " days";
+            String shown = list.stream().limit(DIGEST_MAX_CODES).collect(Collectors.joining(", "));
+            if (list.size() > DIGEST_MAX_CODES) shown += " +" + (list.size() - DIGEST_MAX_CODES) + " more";
+            parts.add(label + ": " + shown);
+        });
+        return String.join(" | ", parts);
+    }
+}
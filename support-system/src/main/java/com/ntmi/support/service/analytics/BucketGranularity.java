@@ -0,0 +1,59 @@
+package com.ntmi.support.service.analytics;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Time bucket sizes for analytics charts.
+ * <p>
+ * Every date maps to a numeric bucket index (epoch-day / week / YearMonth arithmetic),
+ * so buckets sort chronologically and consecutive buckets differ by exactly 1.
+ */
+public enum BucketGranularity {
+
+    DAY {
+        @Override public long indexOf(LocalDate date) { return date.toEpochDay(); }
+        @Override public LocalDate startOf(long index) { return LocalDate.ofEpochDay(index); }
+        @Override public String label(LocalDate start) { return start.toString(); }
+    },
+
+    // ISO weeks (Monday start). 1970-01-01 was a Thursday, so shift by 3 days.
+    WEEK {
+        @Override public long indexOf(LocalDate date) { return Math.floorDiv(date.toEpochDay() + 3, 7); }
+        @Override public LocalDate startOf(long index) { return LocalDate.ofEpochDay(index * 7 - 3); }
+        @Override public String label(LocalDate start) { return "Week of " + start.format(DAY_MONTH); }
+    },
+
+    MONTH {
+        @Override public long indexOf(LocalDate date) { return date.getYear() * 12L + date.getMonthValue() - 1; }
+        @Override public LocalDate startOf(long index) {
+            return YearMonth.of((int) Math.floorDiv(index, 12), (int) Math.floorMod(index, 12) + 1).atDay(1);
+        }
+        @Override public String label(LocalDate start) { return start.format(MONTH_YEAR); }
+    },
+
+    QUARTER {
+        @Override public long indexOf(LocalDate date) { return date.getYear() * 4L + (date.getMonthValue() - 1) / 3; }
+        @Override public LocalDate startOf(long index) {
+            return LocalDate.of((int) Math.floorDiv(index, 4), (int) Math.floorMod(index, 4) * 3 + 1, 1);
+        }
+        @Override public String label(LocalDate start) { return "Q" + ((start.getMonthValue() - 1) / 3 + 1) + " " + start.getYear(); }
+    };
+
+    private static final DateTimeFormatter MONTH_YEAR = DateTimeFormatter.ofPattern("MMM yyyy", Locale.ENGLISH);
+    private static final DateTimeFormatter DAY_MONTH = DateTimeFormatter.ofPattern("dd MMM yyyy", Locale.ENGLISH);
+
+    public abstract long indexOf(LocalDate date);
+
+    public abstract LocalDate startOf(long index);
+
+    // Display text only; ordering always uses the index
+    public abstract String label(LocalDate start);
+
+    public static BucketGranularity parse(String value) {
+        if (value == null || value.isBlank()) return MONTH;
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,133 @@
+package com.ntmi.support.service.analytics;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Small, mergeable quantile sketch (log-bucketed histogram, DDSketch style).
+ * <p>
+ * Each positive value goes into bucket ceil(log(v) / log(gamma)), so any quantile is
+ * returned within ~1% relative error. Two sketches merge by adding bucket counts, which
+ * lets us keep one sketch per day/branch/category and combine them for any range.
+ * Memory is bounded by {@link #MAX_BUCKETS}; beyond that the lowest buckets are folded
+ * together (only the low quantiles lose precision, which matters least for SLAs).
+ */
+public class QuantileSketch {
+
+    public static final double RELATIVE_ACCURACY = 0.01;
+    public static final int MAX_BUCKETS = 2048;
+
+    // Values below this (e.g. under ~36 seconds when measuring hours) are counted as zero
+    private static final double MIN_VALUE = 0.01;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    private final TreeMap<Integer, Long> buckets = new TreeMap<>();
+    private long zeroCount = 0;
+    private long count = 0;
+    private double sum = 0;
+    private double max = 0;
+
+    public void add(double value) {
+        if (Double.isNaN(value) || value < 0) return;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+        if (value < MIN_VALUE) {
+            zeroCount++;
+            return;
+        }
+        buckets.merge(indexOf(value), 1L, Long::sum);
+        collapseIfNeeded();
+    }
+
+    public QuantileSketch merge(QuantileSketch other) {
+        if (other == null || other.count == 0) return this;
+        other.buckets.forEach((idx, c) -> buckets.merge(idx, c, Long::sum));
+        zeroCount += other.zeroCount;
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+        collapseIfNeeded();
+        return this;
+    }
+
+    /**
+     * @param q quantile between 0 and 1 (e.g. 0.9 for p90)
+     * @return estimated value, or 0 when the sketch is empty
+     */
+    public double quantile(double q) {
+        if (count == 0) return 0;
+        if (q < 0 || q > 1) throw new IllegalArgumentException("Quantile must be within [0, 1]");
+
+        long rank = (long) Math.ceil(q * count);
+        if (rank <= zeroCount) return 0;
+
+        long seen = zeroCount;
+        for (Map.Entry<Integer, Long> e : buckets.entrySet()) {
+            seen += e.getValue();
+            if (seen >= rank) {
+                return Math.min(valueOf(e.getKey()), max);
+            }
+        }
+        return max;
+    }
+
+    public long getCount() { return count; }
+
+    public double getMean() { return count == 0 ? 0 : sum / count; }
+
+    public double getMax() { return max; }
+
+    // --- Serialization (compact text, stored in a VARCHAR column) ---
+    // Format: count;sum;max;zeroCount;idx:count,idx:count,...
+
+    public String serialize() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(count).append(';').append(sum).append(';').append(max).append(';').append(zeroCount).append(';');
+        boolean first = true;
+        for (Map.Entry<Integer, Long> e : buckets.entrySet()) {
+            if (!first) sb.append(',');
+            sb.append(e.getKey()).append(':').append(e.getValue());
+            first = false;
+        }
+        return sb.toString();
+    }
+
+    public static QuantileSketch deserialize(String data) {
+        QuantileSketch sketch = new QuantileSketch();
+        if (data == null || data.isBlank()) return sketch;
+
+        String[] parts = data.split(";", -1);
+        sketch.count = Long.parseLong(parts[0]);
+        sketch.sum = Double.parseDouble(parts[1]);
+        sketch.max = Double.parseDouble(parts[2]);
+        sketch.zeroCount = Long.parseLong(parts[3]);
+        if (parts.length > 4 && !parts[4].isEmpty()) {
+            for (String pair : parts[4].split(",")) {
+                int colon = pair.indexOf(':');
+                sketch.buckets.put(Integer.parseInt(pair.substring(0, colon)), Long.parseLong(pair.substring(colon + 1)));
+            }
+        }
+        return sketch;
+    }
+
+    // --- Internals ---
+
+    private static int indexOf(double value) {
+        return (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+    }
+
+    // Midpoint of the bucket so the relative error is symmetric
+    private static double valueOf(int index) {
+        return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+    }
+
+    private void collapseIfNeeded() {
+        while (buckets.size() > MAX_BUCKETS) {
+            Map.Entry<Integer, Long> lowest = buckets.pollFirstEntry();
+            buckets.merge(buckets.firstKey(), lowest.getValue(), Long::sum);
+        }
+    }
+}
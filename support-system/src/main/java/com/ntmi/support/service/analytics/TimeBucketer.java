@@ -0,0 +1,81 @@
+package com.ntmi.support.service.analytics;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Groups dated values into contiguous time buckets in a single pass.
+ * <p>
+ * Buckets are addressed by index arithmetic (see {@link BucketGranularity}), so
+ * there are no string keys or sorted maps involved and empty buckets are always
+ * present with zero totals.
+ */
+public final class TimeBucketer {
+
+    // Upper bound so a wide range with DAY buckets cannot allocate unbounded arrays
+    public static final int MAX_BUCKETS = 5000;
+
+    private TimeBucketer() {}
+
+    public static <T> List<Bucket> aggregate(TimeRange range, BucketGranularity granularity, Iterable<T> rows,
+                                             Function<T, LocalDate> dateOf,
+                                             Function<T, BigDecimal> amountOf,
+                                             Function<T, Long> countOf) {
+        long first = granularity.indexOf(range.getFrom());
+        long last = granularity.indexOf(range.getTo());
+        if (last - first + 1 > MAX_BUCKETS) {
+            throw new IllegalArgumentException("Range produces more than " + MAX_BUCKETS + " " + granularity + " buckets");
+        }
+        int size = (int) (last - first + 1);
+
+        BigDecimal[] totals = new BigDecimal[size];
+        long[] counts = new long[size];
+        for (int i = 0; i < size; i++) totals[i] = BigDecimal.ZERO;
+
+        // One pass over the (already grouped) rows
+        for (T row : rows) {
+            LocalDate date = dateOf.apply(row);
+            if (date == null) continue;
+            long slot = granularity.indexOf(date) - first;
+            if (slot < 0 || slot >= size) continue;
+
+            BigDecimal amount = amountOf.apply(row);
+            if (amount != null) totals[(int) slot] = totals[(int) slot].add(amount);
+            Long count = countOf.apply(row);
+            counts[(int) slot] += (count != null) ? count : 1;
+        }
+
+        List<Bucket> buckets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            LocalDate start = granularity.startOf(first + i);
+            LocalDate end = granularity.startOf(first + i + 1).minusDays(1);
+            buckets.add(new Bucket(start, end, granularity.label(start), totals[i], counts[i]));
+        }
+        return buckets;
+    }
+
+    public static class Bucket {
+        private final LocalDate start;
+        private final LocalDate end;
+        private final String label;
+        private final BigDecimal total;
+        private final long count;
+
+        public Bucket(LocalDate start, LocalDate end, String label, BigDecimal total, long count) {
+            this.start = start;
+            this.end = end;
+            this.label = label;
+            this.total = total;
+            this.count = count;
+        }
+
+        public LocalDate getStart() { return start; }
+        public LocalDate getEnd() { return end; }
+        public String getLabel() { return label; }
+        public BigDecimal getTotal() { return total; }
+        public long getCount() { return count; }
+    }
+}
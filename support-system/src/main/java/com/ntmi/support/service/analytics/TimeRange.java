@@ -0,0 +1,82 @@
+package com.ntmi.support.service.analytics;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Inclusive date range used by analytics queries.
+ * <p>
+ * Built either from explicit from/to dates or from a relative code such as
+ * "1M", "3M", "6M", "1Y", "30D" or "12W" (counted back from today).
+ */
+public class TimeRange {
+
+    private static final Pattern RELATIVE = Pattern.compile("(\\d+)([DWMY])");
+
+    // Earliest date the date/datetime2 columns can hold
+    private static final LocalDate MIN_DATE = LocalDate.of(1, 1, 1);
+
+    private final LocalDate from;
+    private final LocalDate to;
+
+    public TimeRange(LocalDate from, LocalDate to) {
+        if (from == null || to == null) throw new IllegalArgumentException("Range needs both from and to dates");
+        if (from.isAfter(to)) throw new IllegalArgumentException("Range start " + from + " is after end " + to);
+        if (from.isBefore(MIN_DATE)) throw new IllegalArgumentException("Range start " + from + " is before " + MIN_DATE);
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Explicit dates win; otherwise the relative code is used (default 6 months).
+     * A missing "to" means today, a missing "from" means "to minus the relative range".
+     */
+    public static TimeRange resolve(String range, LocalDate from, LocalDate to) {
+        LocalDate end = (to != null) ? to : LocalDate.now();
+        LocalDate start = (from != null) ? from : startFor(range, end);
+        return new TimeRange(start, end);
+    }
+
+    public static TimeRange of(String range) {
+        return resolve(range, null, null);
+    }
+
+    private static LocalDate startFor(String range, LocalDate end) {
+        if (range == null) return end.minusMonths(6);
+        Matcher m = RELATIVE.matcher(range.trim().toUpperCase(Locale.ROOT));
+        if (!m.matches()) return end.minusMonths(6); // Default 6M (same as before)
+
+        long amount = Long.parseLong(m.group(1));
+        try {
+            switch (m.group(2)) {
+                case "D": return end.minusDays(amount);
+                case "W": return end.minusWeeks(amount);
+                case "Y": return end.minusYears(amount);
+                default:  return end.minusMonths(amount);
+            }
+        } catch (DateTimeException e) {
+            // e.g. "999999999999D" runs past the supported year range
+            throw new IllegalArgumentException("Range " + range + " is out of bounds", e);
+        }
+    }
+
+    public LocalDate getFrom() { return from; }
+    public LocalDate getTo() { return to; }
+
+    public LocalDateTime startDateTime() { return from.atStartOfDay(); }
+
+    // Exclusive upper bound for timestamp columns
+    public LocalDateTime endDateTimeExclusive() { return to.plusDays(1).atStartOfDay(); }
+
+    public long lengthInDays() { return to.toEpochDay() - from.toEpochDay() + 1; }
+
+    // Stable cache key
+    public String key() { return from + ".." + to; }
+
+    @Override
+    public String toString() { return key(); }
+}
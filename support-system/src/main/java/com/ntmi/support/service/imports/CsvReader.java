@@ -0,0 +1,77 @@
+package com.ntmi.support.service.imports;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal streaming CSV reader (RFC 4180): comma separated, double-quoted fields,
+ * "" as an escaped quote, and quoted fields may span lines. Reads one record at a time.
+ */
+public class CsvReader {
+
+    private final BufferedReader reader;
+    private long lineNumber = 0;
+    private long recordLine = 0;
+
+    public CsvReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    // Next record, or null at end of input. Blank lines are skipped.
+    public List<String> next() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) return null;
+            lineNumber++;
+        } while (line.isBlank());
+        recordLine = lineNumber;
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (true) {
+            if (i >= line.length()) {
+                if (!quoted) break;
+                // Quoted field continues on the next line
+                String more = reader.readLine();
+                if (more == null) throw new IOException("Unterminated quoted field starting on line " + recordLine);
+                lineNumber++;
+                field.append('\n');
+                line = more;
+                i = 0;
+                continue;
+            }
+            char c = line.charAt(i++);
+            if (quoted) {
+                if (c == '"') {
+                    if (i < line.length() && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // Line on which the last returned record started (1-based)
+    public long getRecordLine() {
+        return recordLine;
+    }
+}
@@ -0,0 +1,132 @@
+package com.ntmi.support.service.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Quantiles stay within the advertised relative error, survive merge and serialization,
+ * and the bucket count never exceeds {@link QuantileSketch#MAX_BUCKETS}.
+ */
+class QuantileSketchTest {
+
+    @Test
+    void emptySketchReturnsZero() {
+        QuantileSketch sketch = new QuantileSketch();
+        assertEquals(0, sketch.getCount());
+        assertEquals(0, sketch.quantile(0.5));
+        assertEquals(0, sketch.getMean());
+        assertEquals(0, sketch.getMax());
+    }
+
+    @Test
+    void quantilesAreWithinRelativeAccuracy() {
+        QuantileSketch sketch = new QuantileSketch();
+        double[] values = new double[10_000];
+        Random random = new Random(42);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.exp(random.nextGaussian() * 2); // wide, skewed range like repair hours
+            sketch.add(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double q : new double[] {0.1, 0.5, 0.9, 0.99}) {
+            double exact = values[(int) Math.ceil(q * values.length) - 1];
+            assertEquals(exact, sketch.quantile(q), exact * QuantileSketch.RELATIVE_ACCURACY, "q=" + q);
+        }
+        double max = values[values.length - 1];
+        assertEquals(max, sketch.quantile(1.0), max * QuantileSketch.RELATIVE_ACCURACY);
+        assertEquals(max, sketch.getMax());
+    }
+
+    @Test
+    void tinyValuesCountAsZeroAndNegativesAreIgnored() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(0);
+        sketch.add(0.001);
+        sketch.add(-5);
+        sketch.add(Double.NaN);
+        sketch.add(10);
+
+        assertEquals(3, sketch.getCount());
+        assertEquals(0, sketch.quantile(0.5));
+        assertEquals(10, sketch.quantile(1.0), 10 * QuantileSketch.RELATIVE_ACCURACY);
+    }
+
+    @Test
+    void quantileNeverExceedsMax() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(5);
+        assertEquals(5, sketch.quantile(0.5));
+        assertEquals(5, sketch.quantile(1.0));
+    }
+
+    @Test
+    void rejectsQuantileOutsideUnitInterval() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(1);
+        assertThrows(IllegalArgumentException.class, () -> sketch.quantile(-0.1));
+        assertThrows(IllegalArgumentException.class, () -> sketch.quantile(1.1));
+    }
+
+    @Test
+    void mergeMatchesSingleSketch() {
+        QuantileSketch all = new QuantileSketch();
+        QuantileSketch left = new QuantileSketch();
+        QuantileSketch right = new QuantileSketch();
+        for (int i = 1; i <= 1000; i++) {
+            all.add(i);
+            (i % 2 == 0 ? left : right).add(i);
+        }
+
+        left.merge(right).merge(null).merge(new QuantileSketch());
+
+        assertEquals(all.getCount(), left.getCount());
+        assertEquals(all.getMean(), left.getMean(), 1e-9);
+        assertEquals(all.getMax(), left.getMax());
+        for (double q : new double[] {0.5, 0.9, 0.99}) {
+            assertEquals(all.quantile(q), left.quantile(q), "q=" + q);
+        }
+    }
+
+    @Test
+    void serializationRoundTrips() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(0);
+        for (int i = 1; i <= 100; i++) sketch.add(i * 1.5);
+
+        QuantileSketch copy = QuantileSketch.deserialize(sketch.serialize());
+
+        assertEquals(sketch.serialize(), copy.serialize());
+        assertEquals(sketch.getCount(), copy.getCount());
+        assertEquals(sketch.quantile(0.9), copy.quantile(0.9));
+        assertEquals(0, QuantileSketch.deserialize(null).getCount());
+        assertEquals(0, QuantileSketch.deserialize("  ").getCount());
+        assertEquals(0, QuantileSketch.deserialize("2;0.0;0.0;2;").quantile(0.99));
+    }
+
+    @Test
+    void collapsesLowestBucketsBeyondLimit() {
+        QuantileSketch sketch = new QuantileSketch();
+        // Each step is a new bucket: far more than MAX_BUCKETS distinct buckets
+        double value = 0.02;
+        int added = 0;
+        while (value < 1e30) {
+            sketch.add(value);
+            value *= 1.03;
+            added++;
+        }
+        assertTrue(added > QuantileSketch.MAX_BUCKETS);
+
+        long buckets = sketch.serialize().split(";", -1)[4].split(",").length;
+        assertTrue(buckets <= QuantileSketch.MAX_BUCKETS, "buckets=" + buckets);
+        assertEquals(added, sketch.getCount());
+        // High quantiles keep their accuracy
+        assertEquals(sketch.getMax(), sketch.quantile(1.0), sketch.getMax() * QuantileSketch.RELATIVE_ACCURACY);
+        double p99 = sketch.quantile(0.99);
+        assertTrue(p99 > 1e28 && p99 < 1e30, "p99=" + p99);
+    }
+}
@@ -0,0 +1,127 @@
+package com.ntmi.support.service.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bucket index arithmetic per granularity, and how the bucketer folds rows into a range.
+ */
+class TimeBucketerTest {
+
+    @Test
+    void weekIndexStartsOnMonday() {
+        LocalDate monday = LocalDate.of(2026, 3, 2);
+        assertEquals(DayOfWeek.MONDAY, monday.getDayOfWeek());
+
+        long index = BucketGranularity.WEEK.indexOf(monday);
+        for (int i = 0; i < 7; i++) {
+            assertEquals(index, BucketGranularity.WEEK.indexOf(monday.plusDays(i)));
+        }
+        assertEquals(index - 1, BucketGranularity.WEEK.indexOf(monday.minusDays(1)));
+        assertEquals(monday, BucketGranularity.WEEK.startOf(index));
+    }
+
+    @Test
+    void weekIndexIsContinuousBeforeEpoch() {
+        // 1970-01-01 is a Thursday; floorDiv keeps the Monday-start weeks around and before it
+        LocalDate monday = LocalDate.of(1969, 12, 29);
+        long index = BucketGranularity.WEEK.indexOf(monday);
+        assertEquals(index, BucketGranularity.WEEK.indexOf(LocalDate.of(1970, 1, 4)));
+        assertEquals(index + 1, BucketGranularity.WEEK.indexOf(LocalDate.of(1970, 1, 5)));
+        assertEquals(monday, BucketGranularity.WEEK.startOf(index));
+        assertEquals(LocalDate.of(1969, 12, 22), BucketGranularity.WEEK.startOf(index - 1));
+    }
+
+    @Test
+    void monthAndQuarterIndexesRollOverTheYear() {
+        LocalDate dec = LocalDate.of(2025, 12, 31);
+        LocalDate jan = LocalDate.of(2026, 1, 1);
+        assertEquals(BucketGranularity.MONTH.indexOf(dec) + 1, BucketGranularity.MONTH.indexOf(jan));
+        assertEquals(BucketGranularity.QUARTER.indexOf(dec) + 1, BucketGranularity.QUARTER.indexOf(jan));
+
+        assertEquals(LocalDate.of(2025, 12, 1), BucketGranularity.MONTH.startOf(BucketGranularity.MONTH.indexOf(dec)));
+        assertEquals(LocalDate.of(2025, 10, 1), BucketGranularity.QUARTER.startOf(BucketGranularity.QUARTER.indexOf(dec)));
+        assertEquals(BucketGranularity.QUARTER.indexOf(LocalDate.of(2026, 4, 1)),
+                BucketGranularity.QUARTER.indexOf(LocalDate.of(2026, 6, 30)));
+    }
+
+    @Test
+    void startOfIsTheInverseOfIndexOf() {
+        LocalDate date = LocalDate.of(2024, 2, 29);
+        for (BucketGranularity g : BucketGranularity.values()) {
+            LocalDate start = g.startOf(g.indexOf(date));
+            assertFalse(start.isAfter(date), g.name());
+            assertEquals(g.indexOf(date), g.indexOf(start), g.name());
+            assertEquals(g.indexOf(date) + 1, g.indexOf(g.startOf(g.indexOf(date) + 1)), g.name());
+        }
+    }
+
+    @Test
+    void labels() {
+        assertEquals("2026-03-02", BucketGranularity.DAY.label(LocalDate.of(2026, 3, 2)));
+        assertEquals("Week of 02 Mar 2026", BucketGranularity.WEEK.label(LocalDate.of(2026, 3, 2)));
+        assertEquals("Mar 2026", BucketGranularity.MONTH.label(LocalDate.of(2026, 3, 1)));
+        assertEquals("Q4 2025", BucketGranularity.QUARTER.label(LocalDate.of(2025, 10, 1)));
+    }
+
+    @Test
+    void parseDefaultsToMonthAndRejectsUnknownValues() {
+        assertEquals(BucketGranularity.MONTH, BucketGranularity.parse(null));
+        assertEquals(BucketGranularity.MONTH, BucketGranularity.parse(" "));
+        assertEquals(BucketGranularity.WEEK, BucketGranularity.parse(" week "));
+        assertThrows(IllegalArgumentException.class, () -> BucketGranularity.parse("fortnight"));
+    }
+
+    @Test
+    void aggregateIncludesEmptyBucketsAndSkipsRowsOutsideTheRange() {
+        TimeRange range = new TimeRange(LocalDate.of(2026, 1, 15), LocalDate.of(2026, 4, 10));
+        List<Object[]> rows = List.of(
+                new Object[] {LocalDate.of(2026, 1, 20), new BigDecimal("10.00"), 2L},
+                new Object[] {LocalDate.of(2026, 1, 31), new BigDecimal("5.50"), 1L},
+                new Object[] {LocalDate.of(2026, 3, 1), null, null},
+                new Object[] {LocalDate.of(2026, 5, 1), new BigDecimal("99"), 1L},
+                new Object[] {LocalDate.of(2025, 12, 31), new BigDecimal("99"), 1L},
+                new Object[] {null, new BigDecimal("99"), 1L});
+
+        List<TimeBucketer.Bucket> buckets = TimeBucketer.aggregate(range, BucketGranularity.MONTH, rows,
+                row -> (LocalDate) row[0], row -> (BigDecimal) row[1], row -> (Long) row[2]);
+
+        assertEquals(4, buckets.size());
+        assertEquals(LocalDate.of(2026, 1, 1), buckets.get(0).getStart());
+        assertEquals(LocalDate.of(2026, 1, 31), buckets.get(0).getEnd());
+        assertEquals(new BigDecimal("15.50"), buckets.get(0).getTotal());
+        assertEquals(3, buckets.get(0).getCount());
+
+        assertEquals(BigDecimal.ZERO, buckets.get(1).getTotal());
+        assertEquals(0, buckets.get(1).getCount());
+        assertEquals(LocalDate.of(2026, 2, 28), buckets.get(1).getEnd());
+
+        // A missing count is one row; a missing amount adds nothing
+        assertEquals(BigDecimal.ZERO, buckets.get(2).getTotal());
+        assertEquals(1, buckets.get(2).getCount());
+
+        assertEquals(LocalDate.of(2026, 4, 30), buckets.get(3).getEnd());
+        assertEquals(0, buckets.get(3).getCount());
+    }
+
+    @Test
+    void aggregateRejectsTooManyBuckets() {
+        LocalDate from = LocalDate.of(2000, 1, 1);
+        TimeRange atLimit = new TimeRange(from, from.plusDays(TimeBucketer.MAX_BUCKETS - 1));
+        TimeRange overLimit = new TimeRange(from, from.plusDays(TimeBucketer.MAX_BUCKETS));
+
+        assertEquals(TimeBucketer.MAX_BUCKETS,
+                TimeBucketer.aggregate(atLimit, BucketGranularity.DAY, List.<Object[]>of(), r -> null, r -> null, r -> null).size());
+        assertThrows(IllegalArgumentException.class,
+                () -> TimeBucketer.aggregate(overLimit, BucketGranularity.DAY, List.<Object[]>of(), r -> null, r -> null, r -> null));
+        // The same range is fine with coarser buckets
+        assertEquals(55, TimeBucketer.aggregate(overLimit, BucketGranularity.QUARTER, List.<Object[]>of(),
+                r -> null, r -> null, r -> null).size());
+    }
+}
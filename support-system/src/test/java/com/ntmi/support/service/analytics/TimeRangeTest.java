@@ -0,0 +1,39 @@
+package com.ntmi.support.service.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeRangeTest {
+
+    private static final LocalDate TO = LocalDate.of(2026, 6, 30);
+
+    @Test
+    void relativeCodesCountBackFromTheEnd() {
+        assertEquals(LocalDate.of(2026, 5, 31), TimeRange.resolve("30d", null, TO).getFrom());
+        assertEquals(LocalDate.of(2026, 6, 16), TimeRange.resolve("2W", null, TO).getFrom());
+        assertEquals(LocalDate.of(2026, 3, 30), TimeRange.resolve("3M", null, TO).getFrom());
+        assertEquals(LocalDate.of(2025, 6, 30), TimeRange.resolve("1Y", null, TO).getFrom());
+        // Missing or unknown codes fall back to six months
+        assertEquals(LocalDate.of(2025, 12, 30), TimeRange.resolve(null, null, TO).getFrom());
+        assertEquals(LocalDate.of(2025, 12, 30), TimeRange.resolve("all", null, TO).getFrom());
+    }
+
+    @Test
+    void explicitDatesWin() {
+        TimeRange range = TimeRange.resolve("1Y", LocalDate.of(2026, 6, 1), TO);
+        assertEquals(LocalDate.of(2026, 6, 1), range.getFrom());
+        assertEquals(30, range.lengthInDays());
+        assertEquals(TO.plusDays(1).atStartOfDay(), range.endDateTimeExclusive());
+    }
+
+    @Test
+    void invalidRangesAreIllegalArguments() {
+        assertThrows(IllegalArgumentException.class, () -> TimeRange.resolve(null, TO.plusDays(1), TO));
+        assertThrows(IllegalArgumentException.class, () -> TimeRange.resolve("99999999Y", null, TO));
+        assertThrows(IllegalArgumentException.class, () -> TimeRange.resolve("999999999999D", null, TO));
+        assertThrows(IllegalArgumentException.class, () -> TimeRange.resolve("99999999999999999999M", null, TO));
+    }
+}
@@ -0,0 +1,67 @@
+package com.ntmi.support.service.imports;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvReaderTest {
+
+    private static CsvReader reader(String text) {
+        return new CsvReader(new BufferedReader(new StringReader(text)));
+    }
+
+    @Test
+    void splitsPlainFieldsAndKeepsEmptyOnes() throws IOException {
+        CsvReader csv = reader("a,b,c\n,x,\n");
+        assertEquals(List.of("a", "b", "c"), csv.next());
+        assertEquals(List.of("", "x", ""), csv.next());
+        assertNull(csv.next());
+    }
+
+    @Test
+    void quotedFieldsMayContainCommasAndEscapedQuotes() throws IOException {
+        CsvReader csv = reader("\"Dell, Inc\",\"say \"\"hi\"\"\",\"\"\n");
+        assertEquals(List.of("Dell, Inc", "say \"hi\"", ""), csv.next());
+    }
+
+    @Test
+    void quotedFieldsMaySpanLines() throws IOException {
+        CsvReader csv = reader("A-1,\"line one\nline two\n\",x\nA-2,y,z\n");
+        assertEquals(List.of("A-1", "line one\nline two\n", "x"), csv.next());
+        assertEquals(1, csv.getRecordLine());
+        assertEquals(List.of("A-2", "y", "z"), csv.next());
+        assertEquals(4, csv.getRecordLine());
+    }
+
+    @Test
+    void skipsBlankLinesAndCountsThem() throws IOException {
+        CsvReader csv = reader("h\n\n   \nA-1\n");
+        assertEquals(List.of("h"), csv.next());
+        assertEquals(List.of("A-1"), csv.next());
+        assertEquals(4, csv.getRecordLine());
+        assertNull(csv.next());
+    }
+
+    @Test
+    void handlesWindowsLineEndingsAndMissingFinalNewline() throws IOException {
+        CsvReader csv = reader("a,b\r\nc,d");
+        assertEquals(List.of("a", "b"), csv.next());
+        assertEquals(List.of("c", "d"), csv.next());
+        assertNull(csv.next());
+    }
+
+    @Test
+    void unterminatedQuotedFieldFailsWithItsStartLine() throws IOException {
+        CsvReader csv = reader("A-1,ok\nA-2,\"never closed\nA-3,more\n");
+        assertEquals(List.of("A-1", "ok"), csv.next());
+
+        IOException e = assertThrows(IOException.class, csv::next);
+        assertTrue(e.getMessage().contains("line 2"), e.getMessage());
+        assertEquals(2, csv.getRecordLine());
+    }
+}
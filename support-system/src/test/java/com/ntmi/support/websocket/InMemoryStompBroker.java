@@ -0,0 +1,192 @@
+package com.ntmi.support.websocket;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Stand-in for an external STOMP broker (RabbitMQ / ActiveMQ) in tests: just enough of
+ * STOMP 1.2 for Spring's broker relay - CONNECT, SUBSCRIBE, UNSUBSCRIBE, SEND, DISCONNECT,
+ * receipts. Destinations match exactly and every subscriber gets a copy; custom SEND headers
+ * are passed through to MESSAGE frames (the relay's user destination broadcast relies on it).
+ * No heart-beats are negotiated.
+ */
+class InMemoryStompBroker implements AutoCloseable {
+
+    private final ServerSocket server;
+    private final List<Connection> connections = new CopyOnWriteArrayList<>();
+    private final AtomicLong messageIds = new AtomicLong();
+    private volatile boolean running = true;
+
+    InMemoryStompBroker() throws IOException {
+        server = new ServerSocket(0);
+        Thread acceptor = new Thread(this::acceptLoop, "stomp-broker-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    int port() {
+        return server.getLocalPort();
+    }
+
+    // Waits until some connection has subscribed to a matching destination
+    boolean awaitSubscription(Predicate<String> destination, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            for (Connection c : connections) {
+                if (c.subscriptions.values().stream().anyMatch(destination)) return true;
+            }
+            Thread.sleep(50);
+        }
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        server.close();
+        for (Connection c : connections) c.close();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Connection c = new Connection(server.accept());
+                connections.add(c);
+                Thread reader = new Thread(c::readLoop, "stomp-broker-conn");
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                return; // closed
+            }
+        }
+    }
+
+    private void deliver(Frame send) {
+        String destination = send.headers.get("destination");
+        for (Connection c : connections) {
+            c.subscriptions.forEach((id, subscribed) -> {
+                if (!subscribed.equals(destination)) return;
+                Map<String, String> headers = new LinkedHashMap<>(send.headers);
+                headers.remove("receipt");
+                headers.put("subscription", id);
+                headers.put("message-id", String.valueOf(messageIds.incrementAndGet()));
+                c.write(new Frame("MESSAGE", headers, send.body));
+            });
+        }
+    }
+
+    private final class Connection {
+        final Socket socket;
+        final OutputStream out;
+        final Map<String, String> subscriptions = new ConcurrentHashMap<>(); // id -> destination
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = new BufferedOutputStream(socket.getOutputStream());
+        }
+
+        void readLoop() {
+            try (InputStream in = new BufferedInputStream(socket.getInputStream())) {
+                Frame frame;
+                while ((frame = Frame.read(in)) != null) {
+                    handle(frame);
+                    if (frame.command.equals("DISCONNECT")) break;
+                }
+            } catch (IOException e) {
+                // connection dropped
+            } finally {
+                close();
+            }
+        }
+
+        void handle(Frame frame) {
+            switch (frame.command) {
+                case "CONNECT", "STOMP" -> write(new Frame("CONNECTED",
+                        Map.of("version", "1.2", "heart-beat", "0,0"), new byte[0]));
+                case "SUBSCRIBE" -> subscriptions.put(frame.headers.get("id"), frame.headers.get("destination"));
+                case "UNSUBSCRIBE" -> subscriptions.remove(frame.headers.get("id"));
+                case "SEND" -> deliver(frame);
+                default -> { }
+            }
+            String receipt = frame.headers.get("receipt");
+            if (receipt != null) write(new Frame("RECEIPT", Map.of("receipt-id", receipt), new byte[0]));
+        }
+
+        synchronized void write(Frame frame) {
+            try {
+                frame.writeTo(out);
+                out.flush();
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        void close() {
+            connections.remove(this);
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private record Frame(String command, Map<String, String> headers, byte[] body) {
+
+        // null at end of stream
+        static Frame read(InputStream in) throws IOException {
+            String command;
+            do {
+                command = readLine(in);
+                if (command == null) return null;
+            } while (command.isEmpty()); // heart-beat EOLs between frames
+
+            Map<String, String> headers = new LinkedHashMap<>();
+            String line;
+            while ((line = readLine(in)) != null && !line.isEmpty()) {
+                int colon = line.indexOf(':');
+                headers.putIfAbsent(line.substring(0, colon), line.substring(colon + 1));
+            }
+
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            String length = headers.get("content-length");
+            if (length != null) {
+                body.write(in.readNBytes(Integer.parseInt(length)));
+                in.read(); // NUL
+            } else {
+                int b;
+                while ((b = in.read()) > 0) body.write(b);
+            }
+            return new Frame(command, headers, body.toByteArray());
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != -1 && b != '\n') line.write(b);
+            if (b == -1 && line.size() == 0) return null;
+            String s = line.toString(StandardCharsets.UTF_8);
+            return s.endsWith("\r") ? s.substring(0, s.length() - 1) : s;
+        }
+
+        void writeTo(OutputStream out) throws IOException {
+            StringBuilder head = new StringBuilder(command).append('\n');
+            headers.forEach((k, v) -> {
+                if (!k.equals("content-length")) head.append(k).append(':').append(v).append('\n');
+            });
+            head.append("content-length:").append(body.length).append("\n\n");
+            out.write(head.toString().getBytes(StandardCharsets.UTF_8));
+            out.write(body);
+            out.write(0);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.ntmi.support.websocket;
+
+import com.ntmi.support.NtmiSupportBackendApplication;
+import com.ntmi.support.config.JwtUtils;
+import com.ntmi.support.model.Role;
+import com.ntmi.support.model.User;
+import com.ntmi.support.repository.NotificationSequenceRepository;
+import com.ntmi.support.repository.UserRepository;
+import com.ntmi.support.service.NotificationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.JacksonJsonMessageConverter;
+import org.springframework.messaging.simp.stomp.*;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two application nodes in relay mode sharing one (stand-in) STOMP broker and one database:
+ * a client connected to node B receives what node A sends, for user destinations and topics,
+ * and a client that reconnects to the other node gets every notification it missed.
+ */
+class MultiNodeWebSocketTest {
+
+    private static final String DB_URL = "jdbc:h2:mem:multinode;MODE=MSSQLServer;DB_CLOSE_DELAY=-1";
+    private static final String JWT_SECRET = "multi-node-test-secret-0123456789abcdef";
+
+    private static InMemoryStompBroker broker;
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    static void startNodes() throws Exception {
+        broker = new InMemoryStompBroker();
+        nodeA = startNode("create");
+        nodeB = startNode("none"); // schema created by node A
+    }
+
+    @AfterAll
+    static void stopNodes() throws Exception {
+        if (nodeB != null) nodeB.close();
+        if (nodeA != null) nodeA.close();
+        if (broker != null) broker.close();
+    }
+
+    private static ConfigurableApplicationContext startNode(String ddl) {
+        // Command line arguments: they override application.properties (builder defaults would not)
+        return new SpringApplicationBuilder(NtmiSupportBackendApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=" + DB_URL,
+                "--spring.datasource.driverClassName=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=" + ddl,
+                "--spring.jpa.show-sql=false",
+                "--websocket.broker.mode=RELAY",
+                "--websocket.broker.relay.host=localhost",
+                "--websocket.broker.relay.port=" + broker.port(),
+                "--app.jwt.secret=" + JWT_SECRET
+        );
+    }
+
+    @Test
+    void userNotificationSentOnNodeAReachesSessionOnNodeB() throws Exception {
+        User user = createUser("branch-mn", Role.BRANCH_USER);
+        BlockingQueue<Map<String, Object>> received = new LinkedBlockingQueue<>();
+
+        StompSession session = connect(nodeB, user.getUsername());
+        session.subscribe("/user/queue/notifications", collectInto(received));
+        assertTrue(broker.awaitSubscription(d -> d.startsWith("/queue/notifications-user"), Duration.ofSeconds(5)));
+
+        nodeA.getBean(NotificationService.class).sendPrivateNotification(user.getUsername(), "Ticket Updated", "From node A");
+
+        Map<String, Object> payload = received.poll(10, TimeUnit.SECONDS);
+        assertNotNull(payload, "notification from node A not delivered to node B");
+        assertEquals("Ticket Updated", payload.get("title"));
+        assertEquals(1, ((Number) payload.get("seq")).intValue());
+        session.disconnect();
+    }
+
+    @Test
+    void topicBroadcastSentOnNodeAReachesSessionOnNodeB() throws Exception {
+        BlockingQueue<Map<String, Object>> received = new LinkedBlockingQueue<>();
+
+        StompSession session = connect(nodeB, "admin"); // created by DataInitializer
+        session.subscribe("/topic/admins", collectInto(received));
+        assertTrue(broker.awaitSubscription("/topic/admins"::equals, Duration.ofSeconds(5)));
+
+        nodeA.getBean(NotificationService.class).notifyAllAdmins("Broadcast", "From node A");
+
+        Map<String, Object> payload = received.poll(10, TimeUnit.SECONDS);
+        assertNotNull(payload, "broadcast from node A not delivered to node B");
+        assertEquals("Broadcast", payload.get("title"));
+        session.disconnect();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reconnectToOtherNodeReplaysSeqsWrittenOnBothNodes() throws Exception {
+        User user = createUser("branch-replay", Role.BRANCH_USER);
+        NotificationSequenceRepository sequences = nodeA.getBean(NotificationSequenceRepository.class);
+
+        // seq 1 and 3 written (and buffered) by node A, seq 2 by node B: B's ring is {2}
+        ConfigurableApplicationContext[] writers = { nodeA, nodeB, nodeA };
+        for (int i = 0; i < writers.length; i++) {
+            writers[i].getBean(NotificationService.class).sendPrivateNotification(user.getUsername(), "N" + (i + 1), "m");
+            long expected = i + 1;
+            assertTrue(await(() -> sequences.findLastSeq(user.getUserId()).orElse(0L) >= expected), "seq " + expected + " not written");
+        }
+        assertTrue(await(() -> nodeB.getBean(MeterRegistry.class).get("notifications.replay.buffered_users").gauge().value() > 0));
+        Thread.sleep(200); // ring append follows the dispatch
+
+        // The client saw seq 1 on node A and reconnects to node B
+        BlockingQueue<Map<String, Object>> received = new LinkedBlockingQueue<>();
+        StompSession session = connect(nodeB, user.getUsername());
+        session.subscribe("/app/notifications/replay/1", collectInto(received));
+
+        Map<String, Object> replay = received.poll(10, TimeUnit.SECONDS);
+        assertNotNull(replay, "no replay answer");
+        List<Number> seqs = ((List<Map<String, Object>>) replay.get("items")).stream()
+                .map(item -> (Number) item.get("seq")).toList();
+        assertEquals(List.of(2, 3), seqs.stream().map(Number::intValue).toList());
+        assertEquals(3, ((Number) replay.get("lastSeq")).intValue());
+        session.disconnect();
+    }
+
+    // --- Helpers ---
+
+    private boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            if (condition.getAsBoolean()) return true;
+            Thread.sleep(50);
+        }
+        return false;
+    }
+
+    private User createUser(String username, Role role) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("x");
+        user.setEmail(username + "@test");
+        user.setFullName(username);
+        user.setRole(role);
+        return nodeA.getBean(UserRepository.class).save(user);
+    }
+
+    private StompSession connect(ConfigurableApplicationContext node, String username) throws Exception {
+        WebSocketStompClient client = new WebSocketStompClient(
+                new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        client.setMessageConverter(new JacksonJsonMessageConverter());
+
+        StompHeaders headers = new StompHeaders();
+        headers.add("Authorization", "Bearer " + node.getBean(JwtUtils.class).generateToken(username));
+        String url = "http://localhost:" + node.getEnvironment().getProperty("local.server.port") + "/ws";
+        return client.connectAsync(url, new WebSocketHttpHeaders(), headers, new StompSessionHandlerAdapter() { })
+                .get(10, TimeUnit.SECONDS);
+    }
+
+    private StompFrameHandler collectInto(BlockingQueue<Map<String, Object>> queue) {
+        return new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Map.class;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public void handleFrame(StompHeaders headers, Object payload) {
+                queue.add((Map<String, Object>) payload);
+            }
+        };
+    }
+}